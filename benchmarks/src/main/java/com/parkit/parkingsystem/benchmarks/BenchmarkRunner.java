@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Runs the benchmarks selected on the command line (all by default, same options as JMH's own launcher)
+ * and writes the results as JSON under {@code results/}, one timestamped file per run, so runs can be
+ * compared over time. An explicit {@code -rf}/{@code -rff} on the command line takes precedence.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        ResultFormatType resultFormat = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        options.resultFormat(resultFormat);
+        if (!commandLineOptions.getResult().hasValue()) {
+            File resultsDir = new File("results");
+            resultsDir.mkdirs();
+            String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            options.result(new File(resultsDir, "jmh-" + timestamp + "." + resultFormat.name().toLowerCase()).getPath());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the DAO calls made on each entry and exit, against an embedded database holding
+ * a history of closed tickets and one open ticket per plate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmark {
+
+    private static final int PLATES = 1000;
+
+    @Param({"20"})
+    public int visitsPerPlate;
+
+    // Whether the DAOs run with the availability index and visit count cache, as the shell does
+    @Param({"false", "true"})
+    public boolean caches;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("daoBenchmark");
+        dataBaseConfig.prepareDataBase(100);
+        dataBaseConfig.seedTicketHistory(PLATES, visitsPerPlate);
+
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if (caches) {
+            parkingSpotDAO.loadAvailabilityIndex();
+            ticketDAO.visitCountCache = new VisitCountCache();
+        }
+
+        // One open ticket per plate, on the bike spots
+        for (int i = 0; i < PLATES; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(101, ParkingType.BIKE, false));
+            ticket.setVehicleRegNumber("P" + i);
+            ticket.setInTime(new Date());
+            ticketDAO.saveTicket(ticket);
+        }
+    }
+
+    private String nextPlate() {
+        return "P" + (lookup++ % PLATES);
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    @Benchmark
+    public boolean claimAndReleaseSlot() {
+        int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        return parkingSpotDAO.updateParking(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+    }
+
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket(nextPlate());
+    }
+
+    @Benchmark
+    public boolean getNbTicket() {
+        return ticketDAO.getNbTicket(nextPlate());
+    }
+}
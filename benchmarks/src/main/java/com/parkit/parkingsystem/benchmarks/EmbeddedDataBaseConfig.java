@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.StatementCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Points the DAOs at an in-process H2 database in MySQL compatibility mode, so benchmarks measure the
+ * application's own work and the JDBC round trip without a network or a MySQL install.
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    private final String name;
+    private final int statementCacheSize;
+
+    public EmbeddedDataBaseConfig(String name) {
+        this(name, StatementCache.DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * @param statementCacheSize prepared statements kept open per pooled connection, 0 to disable the cache.
+     */
+    public EmbeddedDataBaseConfig(String name, int statementCacheSize) {
+        this.name = name;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Migrates the schema and resets the tables to the given number of spots per type and no tickets.
+     */
+    public void prepareDataBase(int spotsPerType) throws SQLException {
+        new SchemaMigrator(this).migrate();
+        try (Connection con = createConnection(); Statement statement = con.createStatement()) {
+            statement.execute("delete from active_ticket");
+            statement.execute("delete from ticket");
+            statement.execute("delete from parking");
+            statement.execute("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) "
+                    + "select X, true, case when X <= " + spotsPerType + " then 'CAR' else 'BIKE' end "
+                    + "from system_range(1, " + (2 * spotsPerType) + ")");
+        }
+    }
+
+    /**
+     * Adds closed tickets for plates {@code P0} to {@code P<plates - 1>}, {@code visitsPerPlate} each, on spot 1.
+     */
+    public void seedTicketHistory(int plates, int visitsPerPlate) throws SQLException {
+        try (Connection con = createConnection(); Statement statement = con.createStatement()) {
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) "
+                    + "select 1, concat('P', (X - 1) / " + visitsPerPlate + "), 1.5, "
+                    + "dateadd('MINUTE', -2 * X, current_timestamp), dateadd('MINUTE', -X, current_timestamp) "
+                    + "from system_range(1, " + (plates * visitsPerPlate) + ")");
+        }
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected String getUrl() {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+}
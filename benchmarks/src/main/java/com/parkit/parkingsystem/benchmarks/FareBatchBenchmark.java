@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of repricing a batch of tickets held in primitive arrays, sequentially and across the fork-join pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareBatchBenchmark {
+
+    @Param({"1000000"})
+    public int batchSize;
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private long[] inTimes;
+    private long[] outTimes;
+    private int[] typeOrdinals;
+    private boolean[] discounts;
+    private long[] pricesInCents;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        inTimes = new long[batchSize];
+        outTimes = new long[batchSize];
+        typeOrdinals = new int[batchSize];
+        discounts = new boolean[batchSize];
+        pricesInCents = new long[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            outTimes[i] = now - random.nextInt(30 * 24) * 60 * 60 * 1000L;
+            inTimes[i] = outTimes[i] - random.nextInt(48 * 60) * 60 * 1000L;
+            typeOrdinals[i] = (random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE).ordinal();
+            discounts[i] = random.nextInt(4) == 0;
+        }
+    }
+
+    @Benchmark
+    public long[] calculateFares() {
+        fareCalculatorService.calculateFares(inTimes, outTimes, typeOrdinals, discounts, pricesInCents);
+        return pricesInCents;
+    }
+
+    @Benchmark
+    public long[] calculateFaresInParallel() {
+        fareCalculatorService.calculateFaresInParallel(inTimes, outTimes, typeOrdinals, discounts, pricesInCents);
+        return pricesInCents;
+    }
+}
@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.ParkingHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of the HTTP API against an embedded database, at a fixed request rate.
+ *
+ * <p>Each visit of a vehicle is three requests: its entry, an availability check and its exit. Requests are
+ * scheduled at the target rate whatever the server's speed, and each latency is measured from the time the request
+ * was scheduled for rather than the time it was sent, so a slow server is not hidden by the client sending less.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar com.parkit.parkingsystem.benchmarks.HttpLoadTest
+ * [requests per second] [seconds] [connections]}, by default 300 requests per second for 30 seconds over 16 connections.
+ */
+public class HttpLoadTest {
+
+    private static final int SPOTS_PER_TYPE = 2000;
+    private static final String[] ENDPOINTS = {"POST /entries", "GET /availability/CAR", "POST /exits"};
+
+    public static void main(String[] args) throws Exception {
+        int requestsPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        // HttpURLConnection keeps at most this many idle connections per host alive
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("httpLoadTest");
+        dataBaseConfig.prepareDataBase(SPOTS_PER_TYPE);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailabilityIndex();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        ParkingHttpServer httpServer = new ParkingHttpServer(parkingService, parkingSpotDAO, 0, connections);
+        httpServer.start();
+
+        String baseUrl = "http://localhost:" + httpServer.getPort();
+        int visits = requestsPerSecond * seconds / ENDPOINTS.length;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long[] latencies = new long[visits * ENDPOINTS.length];
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger nextVisit = new AtomicInteger();
+
+        // Warm up the server and the connections before measuring
+        for (int i = 0; i < 200; i++) {
+            visit(baseUrl, "W" + i);
+        }
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        for (int client = 0; client < connections; client++) {
+            clients.execute(() -> {
+                int visit;
+                while ((visit = nextVisit.getAndIncrement()) < visits) {
+                    String vehicleRegNumber = "L" + visit;
+                    for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+                        int request = visit * ENDPOINTS.length + endpoint;
+                        long scheduled = start + request * intervalNanos;
+                        long delay;
+                        while ((delay = scheduled - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(delay);
+                        }
+                        try {
+                            int status = send(baseUrl, endpoint, vehicleRegNumber);
+                            if (status >= 300) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[request] = System.nanoTime() - scheduled;
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds * 10L + 60, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+        httpServer.close();
+
+        System.out.printf("Target %d req/s, achieved %.1f req/s over %d requests, %d errors%n",
+                requestsPerSecond, latencies.length * 1e9 / elapsedNanos, latencies.length, errors.get());
+        System.out.printf("%-24s %10s %10s %10s %10s %10s%n", "endpoint (ms)", "p50", "p90", "p99", "p99.9", "max");
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            long[] endpointLatencies = new long[visits];
+            for (int visit = 0; visit < visits; visit++) {
+                endpointLatencies[visit] = latencies[visit * ENDPOINTS.length + endpoint];
+            }
+            Arrays.sort(endpointLatencies);
+            System.out.printf("%-24s %10.3f %10.3f %10.3f %10.3f %10.3f%n", ENDPOINTS[endpoint],
+                    percentile(endpointLatencies, 0.50), percentile(endpointLatencies, 0.90),
+                    percentile(endpointLatencies, 0.99), percentile(endpointLatencies, 0.999),
+                    endpointLatencies[endpointLatencies.length - 1] / 1e6);
+        }
+    }
+
+    private static void visit(String baseUrl, String vehicleRegNumber) throws IOException {
+        for (int endpoint = 0; endpoint < ENDPOINTS.length; endpoint++) {
+            send(baseUrl, endpoint, vehicleRegNumber);
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static int send(String baseUrl, int endpoint, String vehicleRegNumber) throws IOException {
+        HttpURLConnection connection;
+        switch (endpoint) {
+            case 0:
+                connection = post(baseUrl + "/entries", "{\"vehicleType\":\"CAR\",\"vehicleRegNumber\":\"" + vehicleRegNumber + "\"}");
+                break;
+            case 1:
+                connection = (HttpURLConnection) new URL(baseUrl + "/availability/CAR").openConnection();
+                break;
+            default:
+                connection = post(baseUrl + "/exits", "{\"vehicleRegNumber\":\"" + vehicleRegNumber + "\"}");
+        }
+        int status = connection.getResponseCode();
+        // Reading the whole answer returns the connection to the keep-alive cache
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[512];
+            while (in != null && in.read(buffer) >= 0) {
+                // Discard
+            }
+        }
+        return status;
+    }
+
+    private static HttpURLConnection post(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of full visits against the in-memory stores, i.e. of the service itself without a database,
+ * for capacity planning. Run with {@code -t <threads>} to measure concurrent gates; each thread uses its own plates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryParkingServiceBenchmark {
+
+    private static final int PLATES = 1000;
+
+    private final AtomicInteger gates = new AtomicInteger();
+    private ParkingService parkingService;
+
+    @State(Scope.Thread)
+    public static class Gate {
+        private String platePrefix;
+        private int visit;
+
+        @Setup(Level.Trial)
+        public void setUp(InMemoryParkingServiceBenchmark benchmark) {
+            platePrefix = "G" + benchmark.gates.incrementAndGet() + "-";
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parkingService = new ParkingService(new InputReaderUtil(), InMemoryParkingSpotStore.withSpots(1000, 1000),
+                new InMemoryTicketStore());
+    }
+
+    @Benchmark
+    public boolean enterThenExit(Gate gate) throws Exception {
+        String vehicleRegNumber = gate.platePrefix + (gate.visit++ % PLATES);
+        Instant now = Instant.now();
+        parkingService.enter(ParkingType.CAR, vehicleRegNumber, now);
+        return parkingService.exit(vehicleRegNumber, now).isExited();
+    }
+}
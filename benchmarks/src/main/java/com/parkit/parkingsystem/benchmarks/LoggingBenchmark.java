@@ -0,0 +1,132 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging overhead under each logging profile: the default one (synchronous, debug level, with location)
+ * and the production one (asynchronous, info level, no location). Measures single log calls and a full visit,
+ * whose DAO calls log as they go. Each profile runs in its own fork, since Log4j reads its configuration once;
+ * the console is redirected to nowhere before Log4j starts, so only the logging itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingBenchmark {
+
+    private static final String DEFAULT_PROFILE = "-Dlog4j.configurationFile=log4j2.properties";
+    private static final String PRODUCTION_PROFILE = "-Dlog4j.configurationFile=log4j2-production.properties";
+    private static final int PLATES = 1000;
+
+    static {
+        // Before the first logger, which binds the console appender to System.out
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    private static final Logger logger = LogManager.getLogger("LoggingBenchmark");
+
+    private ParkingService parkingService;
+    private int visit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("loggingBenchmark");
+        dataBaseConfig.prepareDataBase(100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Drains the asynchronous loggers' queue
+        LogManager.shutdown();
+    }
+
+    private void logInfo() {
+        logger.info("Claimed parking slot {} for {}", visit++, ParkingType.CAR);
+    }
+
+    private void logDebug() {
+        logger.debug("Claimed parking slot {} for {}", visit++, ParkingType.CAR);
+    }
+
+    private boolean enterThenExit() throws Exception {
+        String vehicleRegNumber = "P" + (visit++ % PLATES);
+        Instant now = Instant.now();
+        parkingService.enter(ParkingType.CAR, vehicleRegNumber, now);
+        return parkingService.exit(vehicleRegNumber, now).isExited();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = DEFAULT_PROFILE)
+    public void logInfoDefaultProfile() {
+        logInfo();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = PRODUCTION_PROFILE)
+    public void logInfoProductionProfile() {
+        logInfo();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = DEFAULT_PROFILE)
+    public void logDebugDefaultProfile() {
+        logDebug();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = PRODUCTION_PROFILE)
+    public void logDebugProductionProfile() {
+        logDebug();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = DEFAULT_PROFILE)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean enterThenExitDefaultProfile() throws Exception {
+        return enterThenExit();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = PRODUCTION_PROFILE)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean enterThenExitProductionProfile() throws Exception {
+        return enterThenExit();
+    }
+}
@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead the metrics add to each instrumented call: timing a call, and recording into a timer and a counter
+ * shared by several threads, as the gates do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Timer timer = new Timer();
+    private final Counter counter = new Counter();
+
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void timeCall() {
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordShared() {
+        timer.record(1_500);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void incrementShared() {
+        counter.increment();
+    }
+}
@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost for a gate of publishing an event to the bus, with two subscribers that only read it:
+ * from one gate, and from four gates claiming slots of the same ring at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingEventBusBenchmark {
+
+    private ParkingEventBus eventBus;
+    private Ticket ticket;
+    private long checksum;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventBus = new ParkingEventBus(ParkingEventBus.DEFAULT_CAPACITY);
+        eventBus.subscribe("a", (event, endOfBatch) -> checksum += event.getSequence());
+        eventBus.subscribe("b", (event, endOfBatch) -> checksum += event.getParkingNumber());
+        eventBus.start();
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public boolean publish() {
+        return eventBus.publish(ParkingEvent.Type.ENTRY, ticket, false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean publishShared() {
+        return eventBus.publish(ParkingEvent.Type.ENTRY, ticket, false);
+    }
+}
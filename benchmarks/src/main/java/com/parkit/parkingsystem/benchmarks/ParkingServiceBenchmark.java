@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a full visit, entry then exit of the same plate, against an embedded database: through the shell's
+ * workflows, and through the input-free {@code enter}/{@code exit} calls they wrap.
+ * Plates are reused round robin, so the ticket history grows as a real car park's would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+    private static final int PLATES = 1000;
+
+    // Whether the DAOs run with the availability index and visit count cache, as the shell does
+    @Param({"false", "true"})
+    public boolean caches;
+
+    private final ScriptedInputReaderUtil inputReaderUtil = new ScriptedInputReaderUtil();
+    private ParkingService parkingService;
+    private PrintStream systemOut;
+    private int visit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("parkingServiceBenchmark");
+        dataBaseConfig.prepareDataBase(100);
+        dataBaseConfig.seedTicketHistory(PLATES, 10);
+
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if (caches) {
+            parkingSpotDAO.loadAvailabilityIndex();
+            ticketDAO.visitCountCache = new VisitCountCache();
+        }
+        parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+
+        // The workflows print to the console; keep that out of the measurement
+        systemOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(systemOut);
+    }
+
+    @Benchmark
+    public void incomingThenExitingVehicle() {
+        inputReaderUtil.script(1, "P" + (visit++ % PLATES));
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+
+    @Benchmark
+    public boolean enterThenExit() throws Exception {
+        String vehicleRegNumber = "P" + (visit++ % PLATES);
+        Instant now = Instant.now();
+        parkingService.enter(ParkingType.CAR, vehicleRegNumber, now);
+        return parkingService.exit(vehicleRegNumber, now).isExited();
+    }
+}
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * Answers the shell's prompts with values set by the benchmark instead of reading the console.
+ */
+public class ScriptedInputReaderUtil extends InputReaderUtil {
+
+    private int selection;
+    private String vehicleRegNumber;
+
+    public void script(int selection, String vehicleRegNumber) {
+        this.selection = selection;
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return selection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.benchmarks;
+
+import com.parkit.parkingsystem.config.StatementCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call latency of the DAO queries with and without the prepared statement cache, against an embedded database.
+ * The DAOs run without their in-memory caches, so every call reaches the database. The fork logs with the
+ * production profile so console output does not hide the difference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-production.properties")
+public class StatementCacheBenchmark {
+
+    private static final int PLATES = 1000;
+
+    // Prepared statements kept open per pooled connection, 0 to prepare them on every call
+    @Param({"0", "32"})
+    public int statementCacheSize;
+
+    private EmbeddedDataBaseConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig("statementCacheBenchmark", statementCacheSize);
+        dataBaseConfig.prepareDataBase(100);
+        dataBaseConfig.seedTicketHistory(PLATES, 10);
+
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+
+        // One open ticket per plate, on the bike spots
+        for (int i = 0; i < PLATES; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(101, ParkingType.BIKE, false));
+            ticket.setVehicleRegNumber("P" + i);
+            ticket.setInTime(new Date());
+            ticketDAO.saveTicket(ticket);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StatementCache statementCache = dataBaseConfig.getStatementCache();
+        if (statementCache != null) {
+            System.out.println(statementCache);
+        }
+    }
+
+    private String nextPlate() {
+        return "P" + (lookup++ % PLATES);
+    }
+
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket(nextPlate());
+    }
+
+    @Benchmark
+    public int getTicketCount() {
+        return ticketDAO.getTicketCount(nextPlate());
+    }
+
+    @Benchmark
+    public boolean claimAndReleaseSlot() {
+        int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        return parkingSpotDAO.updateParking(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+    }
+}
@@ -1,5 +1,7 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
 import com.parkit.parkingsystem.service.InteractiveShell;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -8,6 +10,13 @@ public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
+        if (!InteractiveShell.usesInMemoryStore()) {
+            try {
+                new SchemaMigrator(new DataBaseConfig()).migrate();
+            } catch (Exception e) {
+                logger.error("Unable to bring the database schema up to date", e);
+            }
+        }
         InteractiveShell.loadInterface();
     }
 }
@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.GateEventReplayer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+
+/**
+ * Replays a gate journal to the database, for instance after the gate that wrote it crashed.
+ * Takes the journal directory as its only argument.
+ */
+public class GateJournalReplayTool {
+    private static final Logger logger = LogManager.getLogger("GateJournalReplayTool");
+    public static void main(String args[]){
+        if (args.length != 1) {
+            System.err.println("Usage: GateJournalReplayTool <journal directory>");
+            System.exit(2);
+        }
+        DataBaseConfig dataBaseConfig = new DataBaseConfig();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        try (GateEventJournal gateEventJournal = new GateEventJournal(Paths.get(args[0]))) {
+            new SchemaMigrator(dataBaseConfig).migrate();
+            int replayed = new GateEventReplayer(gateEventJournal, ticketDAO, parkingSpotDAO).replayPending();
+            System.out.println("Replayed " + replayed + " gate events");
+        } catch (Exception e) {
+            logger.error("Unable to replay the gate journal", e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections.
+ * At most {@code maxSize} connections are leased at the same time; callers beyond that wait up to
+ * {@code borrowTimeoutMillis} for one to be released. Released connections are kept idle and reused,
+ * idle connections above {@code minIdle} are closed once they have not been used for {@code idleTimeoutMillis}.
+ */
+public class ConnectionPool {
+
+    public static final int DEFAULT_MIN_IDLE = 1;
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5 * 1000;
+
+    // Connections used more recently than this are handed out without a validation round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    public interface ConnectionFactory {
+        Connection createConnection() throws SQLException;
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long lastUsedMillis;
+
+        private IdleConnection(Connection connection, long lastUsedMillis) {
+            this.connection = connection;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+
+    private final Semaphore permits;
+    // Most recently released connection first, so the warmest connection is reused
+    private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<Connection> leasedConnections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory connectionFactory) {
+        this(connectionFactory, DEFAULT_MIN_IDLE, DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_BORROW_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int minIdle, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.connectionFactory = connectionFactory;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, reusing an idle one when possible.
+     *
+     * @return a connection that must be handed back with {@link #releaseConnection(Connection)}.
+     * @throws SQLException if no connection became available within the borrow timeout or a new one could not be opened.
+     */
+    public Connection borrowConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        try {
+            Connection con = takeIdleConnection();
+            if (con == null) {
+                con = connectionFactory.createConnection();
+                createdCount.incrementAndGet();
+            }
+            leasedConnections.add(con);
+            recordWait(System.nanoTime() - start);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool.
+     * Connections that are closed, broken or were not borrowed from this pool are closed instead of being kept.
+     *
+     * @param con the connection to release, ignored if null.
+     */
+    public void releaseConnection(Connection con) {
+        if (con == null) {
+            return;
+        }
+        if (!leasedConnections.remove(con)) {
+            closeQuietly(con);
+            return;
+        }
+        try {
+            if (closed || con.isClosed()) {
+                closeQuietly(con);
+            } else {
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                idleConnections.offerFirst(new IdleConnection(con, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            logger.error("Discarding connection that could not be reset", e);
+            closeQuietly(con);
+        } finally {
+            permits.release();
+        }
+        evictIdleConnections();
+    }
+
+    /**
+     * Closes idle connections unused for longer than the idle timeout, keeping at least {@code minIdle} of them.
+     *
+     * @return the number of connections closed.
+     */
+    public int evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int evicted = 0;
+        while (idleConnections.size() > minIdle) {
+            IdleConnection oldest = idleConnections.peekLast();
+            if (oldest == null || oldest.lastUsedMillis > cutoff) {
+                break;
+            }
+            if (idleConnections.removeLastOccurrence(oldest)) {
+                closeQuietly(oldest.connection);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes every idle connection and refuses further borrows. Leased connections are closed when released.
+     */
+    public void close() {
+        closed = true;
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            closeQuietly(idle.connection);
+        }
+    }
+
+    private Connection takeIdleConnection() {
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            if (isUsable(idle)) {
+                return idle.connection;
+            }
+            closeQuietly(idle.connection);
+        }
+        return null;
+    }
+
+    private boolean isUsable(IdleConnection idle) {
+        try {
+            if (idle.connection.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - idle.lastUsedMillis < VALIDATION_BYPASS_MILLIS) {
+                return true;
+            }
+            return idle.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    private void closeQuietly(Connection con) {
+        try {
+            con.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return leasedConnections.size();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public long getAverageWaitNanos() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0 : totalWaitNanos.get() / borrows;
+    }
+}
@@ -1,37 +1,143 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final Timer getConnectionTimer = MetricsRegistry.getDefault().timer("DataBaseConfig.getConnection");
+
+    // One pool per JDBC url, shared by every DataBaseConfig pointing at the same database
+    private static final ConcurrentMap<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, StatementCache> statementCaches = new ConcurrentHashMap<>();
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /**
+     * Points at the default production database.
+     */
+    public DataBaseConfig() {
+        // Server-side prepared statements, kept open by the statement cache, spare the server from parsing each query again
+        this("jdbc:mysql://localhost:3306/prod?useServerPrepStmts=true", "root", "Qnyyera6!");
+    }
+
+    /**
+     * Points at the given MySQL database, e.g. the database of one site.
+     */
+    public DataBaseConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Borrows a connection from the pool, or returns the connection of the unit of work open on this thread.
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","Qnyyera6!");
+        long start = getConnectionTimer.start();
+        try {
+            UnitOfWork unitOfWork = UnitOfWork.current();
+            if (unitOfWork != null) {
+                return unitOfWork.getConnection(getConnectionPool());
+            }
+            return getConnectionPool().borrowConnection();
+        } finally {
+            getConnectionTimer.stop(start);
+        }
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
-            try {
-                con.close();
-                logger.info("Closing DB connection");
-            } catch (SQLException e) {
-                logger.error("Error while closing connection",e);
+            UnitOfWork unitOfWork = UnitOfWork.current();
+            if (unitOfWork != null && unitOfWork.owns(con)) {
+                // Released when the unit of work is closed
+                return;
             }
+            getConnectionPool().releaseConnection(con);
+            logger.debug("Releasing DB connection");
+        }
+    }
+
+    /**
+     * Returns the connection pool serving this database, creating it on first use.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPools.computeIfAbsent(getUrl(), url -> createConnectionPool());
+    }
+
+    protected ConnectionPool createConnectionPool() {
+        StatementCache statementCache = getStatementCache();
+        if (statementCache == null) {
+            return new ConnectionPool(this::createConnection);
         }
+        return new ConnectionPool(() -> statementCache.wrap(createConnection()));
+    }
+
+    /**
+     * Returns the cache of prepared statements shared by the pooled connections to this database,
+     * creating it on first use.
+     *
+     * @return the cache, or null if statements are not cached.
+     */
+    public StatementCache getStatementCache() {
+        int maxStatements = getStatementCacheSize();
+        if (maxStatements <= 0) {
+            return null;
+        }
+        return statementCaches.computeIfAbsent(getUrl(), url -> new StatementCache(maxStatements));
+    }
+
+    /**
+     * @return the number of prepared statements kept open per pooled connection, 0 to prepare them on every call.
+     */
+    protected int getStatementCacheSize() {
+        return StatementCache.DEFAULT_MAX_STATEMENTS;
+    }
+
+    /**
+     * Opens a new physical connection. Only called by the pool when no idle connection can be reused.
+     */
+    protected Connection createConnection() throws SQLException {
+        logger.info("Create DB connection");
+        try {
+            Class.forName(getDriverClassName());
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found: " + getDriverClassName(), e);
+        }
+        return DriverManager.getConnection(getUrl(), getUser(), getPassword());
+    }
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    protected String getUrl() {
+        return url;
+    }
+
+    protected String getUser() {
+        return user;
+    }
+
+    protected String getPassword() {
+        return password;
     }
 
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +148,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
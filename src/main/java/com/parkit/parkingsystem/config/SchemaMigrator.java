@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date with the versioned scripts under {@code db/migration}.
+ * Applied versions are recorded in the {@code schema_version} table, so each script runs once per database.
+ * A database created before migrations existed (tables present, no schema_version table) is recorded
+ * as being at version 1 without running the first script.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    private static final String MIGRATION_LOCATION = "db/migration/";
+
+    // Scripts in version order, named V<version>__<description>.sql
+    private static final String[] MIGRATIONS = {
+            "V1__create_parking_and_ticket.sql",
+            "V2__add_lookup_indexes.sql",
+            "V3__add_active_ticket.sql",
+            "V4__add_write_behind_checkpoint.sql",
+            "V5__add_ticket_idempotency_key.sql"
+    };
+
+    private static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    private static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    private static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,?)";
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public static int getLatestVersion() {
+        return versionOf(MIGRATIONS[MIGRATIONS.length - 1]);
+    }
+
+    /**
+     * Applies every migration newer than the database's current version.
+     *
+     * @return the number of migrations applied.
+     * @throws SQLException if a migration fails; the versions applied before it stay recorded.
+     */
+    public int migrate() throws SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            boolean legacySchema = !tableExists(con, "schema_version") && tableExists(con, "parking");
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_SCHEMA_VERSION);
+            }
+            if (legacySchema) {
+                logger.info("Existing schema found, recording it as version 1");
+                recordVersion(con, MIGRATIONS[0]);
+            }
+            int currentVersion = getCurrentVersion(con);
+            int applied = 0;
+            for (String migration : MIGRATIONS) {
+                if (versionOf(migration) > currentVersion) {
+                    logger.info("Applying schema migration {}", migration);
+                    try (Statement statement = con.createStatement()) {
+                        for (String sql : readStatements(migration)) {
+                            statement.execute(sql);
+                        }
+                    }
+                    recordVersion(con, migration);
+                    applied++;
+                }
+            }
+            return applied;
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return the highest migration version applied to the database, 0 if none.
+     */
+    public int getCurrentVersion() throws SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return tableExists(con, "schema_version") ? getCurrentVersion(con) : 0;
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int getCurrentVersion(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(GET_SCHEMA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection con, String migration) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, versionOf(migration));
+            ps.setString(2, migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' '));
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean tableExists(Connection con, String table) throws SQLException {
+        DatabaseMetaData metaData = con.getMetaData();
+        // Table names are stored lower case by MySQL and upper case by most other databases
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = metaData.getTables(con.getCatalog(), null, name, new String[]{"TABLE"})) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    /**
+     * Reads a migration script and splits it into statements, dropping comments.
+     */
+    private List<String> readStatements(String migration) throws SQLException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_LOCATION + migration);
+        if (in == null) {
+            throw new SQLException("Migration script not found: " + migration);
+        }
+        StringBuilder script = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Error reading migration script " + migration, e);
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : script.toString().replaceAll("(?s)/\\*.*?\\*/", "").split(";")) {
+            if (!sql.trim().isEmpty()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+}
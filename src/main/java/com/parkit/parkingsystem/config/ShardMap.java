@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maps each site, i.e. each garage, to the database holding its parking spots and tickets.
+ * Every site database has the full schema, so a site's traffic only ever touches its own database
+ * and garages are added by adding databases.
+ */
+public class ShardMap {
+
+    private final Map<String, DataBaseConfig> dataBaseConfigBySite = new LinkedHashMap<>();
+
+    /**
+     * Adds a site served by the given database.
+     *
+     * @throws IllegalArgumentException if the site is already mapped.
+     */
+    public synchronized ShardMap addSite(String siteId, DataBaseConfig dataBaseConfig) {
+        if (dataBaseConfigBySite.containsKey(siteId)) {
+            throw new IllegalArgumentException("Site already mapped: " + siteId);
+        }
+        dataBaseConfigBySite.put(siteId, dataBaseConfig);
+        return this;
+    }
+
+    /**
+     * @return the database of the site.
+     * @throws IllegalArgumentException if the site is not mapped.
+     */
+    public synchronized DataBaseConfig getDataBaseConfig(String siteId) {
+        DataBaseConfig dataBaseConfig = dataBaseConfigBySite.get(siteId);
+        if (dataBaseConfig == null) {
+            throw new IllegalArgumentException("Unknown site: " + siteId);
+        }
+        return dataBaseConfig;
+    }
+
+    /**
+     * @return the mapped sites, in the order they were added.
+     */
+    public synchronized Set<String> getSiteIds() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(dataBaseConfigBySite.keySet()));
+    }
+
+    /**
+     * Reads a shard map from properties of the form {@code site.<id>.url}, {@code site.<id>.user} and
+     * {@code site.<id>.password}, one MySQL database per site.
+     *
+     * @throws IllegalArgumentException if a site has no url.
+     */
+    public static ShardMap fromProperties(Properties properties) {
+        Set<String> siteIds = new TreeSet<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("site.") && name.lastIndexOf('.') > "site.".length()) {
+                siteIds.add(name.substring("site.".length(), name.lastIndexOf('.')));
+            }
+        }
+        ShardMap shardMap = new ShardMap();
+        for (String siteId : siteIds) {
+            String url = properties.getProperty("site." + siteId + ".url");
+            if (url == null) {
+                throw new IllegalArgumentException("No url for site " + siteId);
+            }
+            shardMap.addSite(siteId, new DataBaseConfig(url, properties.getProperty("site." + siteId + ".user"),
+                    properties.getProperty("site." + siteId + ".password")));
+        }
+        return shardMap;
+    }
+
+    /**
+     * Reads a shard map from a properties file, see {@link #fromProperties(Properties)}.
+     */
+    public static ShardMap load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        return fromProperties(properties);
+    }
+}
@@ -0,0 +1,260 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the prepared statements of each pooled connection open for reuse, so the DAOs' fixed set of queries is
+ * parsed once per connection instead of once per call. {@link #wrap(Connection)} returns a connection whose
+ * {@code prepareStatement} hands out a cached statement when one is free for the same SQL, and whose statements
+ * go back to the cache instead of closing, with their parameters, batch, fetch size, max rows and query timeout reset.
+ * Statements are closed for good when evicted or when the connection closes.
+ * Hits and misses are counted over every connection of the cache.
+ */
+public class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    public static final int DEFAULT_MAX_STATEMENTS = 32;
+
+    private final int maxStatementsPerConnection;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxStatementsPerConnection statements kept open per connection, the least recently used being closed first.
+     */
+    public StatementCache(int maxStatementsPerConnection) {
+        if (maxStatementsPerConnection < 1) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + maxStatementsPerConnection);
+        }
+        this.maxStatementsPerConnection = maxStatementsPerConnection;
+    }
+
+    /**
+     * Returns a connection caching the statements prepared through it. The connection is only used by one thread at
+     * a time, as handed out by the pool.
+     */
+    public Connection wrap(Connection con) {
+        CachingConnection cachingConnection = new CachingConnection(con);
+        cachingConnection.proxy = (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, cachingConnection);
+        return cachingConnection.proxy;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class CachedStatement {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean leased;
+        private boolean cached = true;
+
+        // Settings of the freshly prepared statement, restored when a caller changed them
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+        private boolean settingsChanged;
+
+        private CachedStatement(String key, PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+            this.defaultMaxRows = statement.getMaxRows();
+            this.defaultQueryTimeout = statement.getQueryTimeout();
+        }
+
+        private void resetSettings() throws SQLException {
+            if (settingsChanged) {
+                // Max rows first, as a driver may refuse a fetch size above the max rows still set
+                statement.setMaxRows(defaultMaxRows);
+                statement.setFetchSize(defaultFetchSize);
+                statement.setQueryTimeout(defaultQueryTimeout);
+                settingsChanged = false;
+            }
+        }
+    }
+
+    private class CachingConnection implements InvocationHandler {
+        private final Connection con;
+        // The connection handed out, returned by the statements' getConnection
+        private Connection proxy;
+        // Least recently used first
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        private CachingConnection(Connection con) {
+            this.con = con;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    // Only the plain and generated keys variants are cached, the ones the DAOs use
+                    if (args.length == 1 || (args.length == 2 && args[1] instanceof Integer)) {
+                        return prepare(method, args);
+                    }
+                    break;
+                case "close":
+                    closeStatements();
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return StatementCache.invoke(con, method, args);
+        }
+
+        private PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+            String key = args.length == 1 ? (String) args[0] : args[1] + ":" + args[0];
+            CachedStatement cachedStatement = statements.get(key);
+            if (cachedStatement != null && !cachedStatement.leased) {
+                hitCount.incrementAndGet();
+            } else {
+                // Not prepared yet on this connection, or still open in the caller: prepare another one
+                missCount.incrementAndGet();
+                if (cachedStatement != null) {
+                    cachedStatement.cached = false;
+                }
+                cachedStatement = new CachedStatement(key, (PreparedStatement) StatementCache.invoke(con, method, args));
+                statements.put(key, cachedStatement);
+                evictLeastRecentlyUsed();
+            }
+            cachedStatement.leased = true;
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new LeasedStatement(cachedStatement));
+        }
+
+        private void evictLeastRecentlyUsed() {
+            Iterator<CachedStatement> iterator = statements.values().iterator();
+            while (statements.size() > maxStatementsPerConnection && iterator.hasNext()) {
+                CachedStatement eldest = iterator.next();
+                iterator.remove();
+                eldest.cached = false;
+                evictionCount.incrementAndGet();
+                if (!eldest.leased) {
+                    closeQuietly(eldest.statement);
+                }
+            }
+        }
+
+        private void closeStatements() {
+            List<CachedStatement> open = new ArrayList<>(statements.values());
+            statements.clear();
+            for (CachedStatement cachedStatement : open) {
+                cachedStatement.cached = false;
+                closeQuietly(cachedStatement.statement);
+            }
+        }
+
+        /**
+         * A statement as handed out to one caller: closing it returns the statement to the cache.
+         */
+        private class LeasedStatement implements InvocationHandler {
+            private final CachedStatement cachedStatement;
+            private boolean closed;
+
+            private LeasedStatement(CachedStatement cachedStatement) {
+                this.cachedStatement = cachedStatement;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || cachedStatement.statement.isClosed();
+                    case "getConnection":
+                        return CachingConnection.this.proxy;
+                    case "setFetchSize":
+                    case "setMaxRows":
+                    case "setLargeMaxRows":
+                    case "setQueryTimeout":
+                        cachedStatement.settingsChanged = true;
+                        break;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+                return StatementCache.invoke(cachedStatement.statement, method, args);
+            }
+
+            private void release() throws SQLException {
+                cachedStatement.leased = false;
+                if (!cachedStatement.cached) {
+                    cachedStatement.statement.close();
+                    return;
+                }
+                try {
+                    cachedStatement.statement.clearParameters();
+                    cachedStatement.statement.clearBatch();
+                    cachedStatement.resetSettings();
+                } catch (SQLException e) {
+                    logger.warn("Discarding cached statement that could not be reset", e);
+                    statements.remove(cachedStatement.key, cachedStatement);
+                    cachedStatement.cached = false;
+                    closeQuietly(cachedStatement.statement);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing cached statement", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCache[hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+}
@@ -0,0 +1,191 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the DAO calls made by the current thread into a single transaction.
+ * While a unit of work is open, {@link DataBaseConfig#getConnection()} hands out the same connection
+ * (borrowed lazily on first use, with autocommit off) and {@link DataBaseConfig#closeConnection(Connection)}
+ * leaves it open. The work is committed by {@link #commit()}; closing without committing rolls it back.
+ *
+ * <pre>
+ * try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+ *     parkingSpotDAO.updateParking(parkingSpot);
+ *     ticketDAO.saveTicket(ticket);
+ *     unitOfWork.commit();
+ * }
+ * </pre>
+ *
+ * A unit of work begun while another one is open on the same thread joins it: only the outermost one commits.
+ * A joined unit of work closed without committing, e.g. by a DAO that failed, marks the outermost one
+ * rollback-only, so its commit fails instead of applying half of the work.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("UnitOfWork");
+
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    // One connection per pool, in case the work spans several databases
+    private final Map<ConnectionPool, Connection> connections = new IdentityHashMap<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> afterRollback = new ArrayList<>();
+    private final UnitOfWork outer;
+    private boolean completed;
+    private boolean rollbackOnly;
+
+    private UnitOfWork(UnitOfWork outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Opens a unit of work on the current thread, or joins the one already open.
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork active = current.get();
+        if (active != null) {
+            return new UnitOfWork(active);
+        }
+        UnitOfWork unitOfWork = new UnitOfWork(null);
+        current.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    /**
+     * Returns the unit of work open on the current thread, or null.
+     */
+    static UnitOfWork current() {
+        return current.get();
+    }
+
+    /**
+     * Returns true if a unit of work is open on the current thread.
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs the action once the unit of work open on this thread commits, or right away if none is open.
+     * Used to publish in-memory state only when the matching database change is durable.
+     */
+    public static void runAfterCommit(Runnable action) {
+        UnitOfWork active = current.get();
+        if (active == null) {
+            action.run();
+        } else {
+            active.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Runs the action if the unit of work open on this thread is rolled back. Does nothing if none is open,
+     * since the change was then committed by the statement itself.
+     */
+    public static void runAfterRollback(Runnable action) {
+        UnitOfWork active = current.get();
+        if (active != null) {
+            active.afterRollback.add(action);
+        }
+    }
+
+    Connection getConnection(ConnectionPool connectionPool) throws SQLException {
+        Connection con = connections.get(connectionPool);
+        if (con == null) {
+            con = connectionPool.borrowConnection();
+            try {
+                con.setAutoCommit(false);
+            } catch (SQLException e) {
+                connectionPool.releaseConnection(con);
+                throw e;
+            }
+            connections.put(connectionPool, con);
+        }
+        return con;
+    }
+
+    boolean owns(Connection con) {
+        return connections.containsValue(con);
+    }
+
+    /**
+     * Commits every statement run since the unit of work began. For a joined unit of work, only records that its
+     * part of the work is complete.
+     *
+     * @throws SQLException if a joined unit of work was closed without committing or a commit fails, in which case
+     *                      the work is rolled back on close.
+     */
+    public void commit() throws SQLException {
+        if (outer != null) {
+            completed = true;
+            return;
+        }
+        if (rollbackOnly) {
+            throw new SQLException("A joined unit of work did not complete, rolling back");
+        }
+        for (Connection con : connections.values()) {
+            con.commit();
+        }
+        completed = true;
+        runAll(afterCommit);
+    }
+
+    /**
+     * Discards every statement run since the unit of work began, including those of joined units of work.
+     */
+    public void rollback() {
+        UnitOfWork root = outer != null ? outer : this;
+        for (Connection con : root.connections.values()) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back unit of work", e);
+            }
+        }
+        root.completed = true;
+        runAll(root.afterRollback);
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Error while running unit of work completion action", e);
+            }
+        }
+        actions.clear();
+    }
+
+    /**
+     * Rolls back uncommitted work and returns the connections to their pools.
+     */
+    @Override
+    public void close() {
+        if (outer != null) {
+            if (!completed) {
+                outer.rollbackOnly = true;
+            }
+            return;
+        }
+        try {
+            if (!completed) {
+                rollback();
+            }
+        } finally {
+            for (Map.Entry<ConnectionPool, Connection> entry : connections.entrySet()) {
+                entry.getKey().releaseConnection(entry.getValue());
+            }
+            connections.clear();
+            current.remove();
+        }
+    }
+}
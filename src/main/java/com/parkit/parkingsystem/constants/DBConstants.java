@@ -2,10 +2,31 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
+    public static final String GET_PARKING_SPOT_TYPE = "select TYPE from parking where PARKING_NUMBER = ?";
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String GET_AVAILABLE_PARKING_SPOTS_AFTER = "select PARKING_NUMBER from parking where AVAILABLE = true and TYPE = ? and PARKING_NUMBER > ? order by PARKING_NUMBER limit ?";
+    // Locks a spot if it is still free and no other transaction holds it, returning no row instead of waiting
+    public static final String LOCK_AVAILABLE_PARKING_SPOT = "select PARKING_NUMBER from parking where PARKING_NUMBER = ? and AVAILABLE = true for update skip locked";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS = "select count(*) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS_BY_TYPE = "select TYPE, count(*) from parking where AVAILABLE = true group by TYPE";
+    public static final String UPDATE_PARKING_SPOT_IF_CHANGED = "update parking set available = ? where PARKING_NUMBER = ? and available <> ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, IDEMPOTENCY_KEY) values(?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String COUNT_TICKETS = "select count(*) from ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String GET_WRITE_BEHIND_CHECKPOINT = "select SEQUENCE from write_behind_checkpoint where JOURNAL = ?";
+    public static final String UPDATE_WRITE_BEHIND_CHECKPOINT = "update write_behind_checkpoint set SEQUENCE = ? where JOURNAL = ?";
+    public static final String SAVE_WRITE_BEHIND_CHECKPOINT = "insert into write_behind_checkpoint(JOURNAL, SEQUENCE) values(?,?)";
+    public static final String EXPORT_TICKETS = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket order by ID";
+    public static final String GET_TICKET = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, IDEMPOTENCY_KEY, VEHICLE_REG_NUMBER from ticket where VEHICLE_REG_NUMBER=? order by IN_TIME desc limit 1";
+    public static final String GET_TICKET_BY_ID = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, IDEMPOTENCY_KEY, VEHICLE_REG_NUMBER from ticket where ID=?";
+    public static final String GET_TICKET_BY_IDEMPOTENCY_KEY = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, IDEMPOTENCY_KEY, VEHICLE_REG_NUMBER from ticket where IDEMPOTENCY_KEY=?";
+
+    public static final String GET_ACTIVE_TICKET_ID = "select TICKET_ID from active_ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String SAVE_ACTIVE_TICKET = "insert into active_ticket(VEHICLE_REG_NUMBER, TICKET_ID) values(?,?)";
+    public static final String DELETE_ACTIVE_TICKET = "delete from active_ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String DELETE_ACTIVE_TICKET_BY_ID = "delete from active_ticket where TICKET_ID = ?";
 }
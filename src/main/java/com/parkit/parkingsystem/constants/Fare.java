@@ -3,4 +3,14 @@ package com.parkit.parkingsystem.constants;
 public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.0;
     public static final double CAR_RATE_PER_HOUR = 1.5;
+
+    // Same rates in cents, for exact fixed-point pricing
+    public static final long BIKE_RATE_PER_HOUR_IN_CENTS = 100;
+    public static final long CAR_RATE_PER_HOUR_IN_CENTS = 150;
+
+    // Stays up to this long are free
+    public static final long FREE_PARKING_MILLIS = 30 * 60 * 1000;
+
+    // Percentage of the fare paid by recurring users
+    public static final long DISCOUNTED_FARE_PERCENT = 95;
 }
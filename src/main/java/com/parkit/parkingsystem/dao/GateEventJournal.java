@@ -0,0 +1,377 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.util.JournalRecordUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only journal of gate events, written before the database so a gate only waits for the local disk.
+ *
+ * <p>Events go to memory-mapped segment files of a fixed size in the journal directory. Each record is framed by
+ * {@link JournalRecordUtil}: its length, the event and a CRC32; the zero-filled rest of a segment marks its end, and
+ * a record cut by a crash fails its CRC.
+ * {@link #awaitDurable(long)} waits for a background thread to force the segment to disk: gates appending at the
+ * same time share one fsync.
+ *
+ * <p>Positions are global: segment number times segment size plus the offset in the segment. The position up to which
+ * events are in the database is kept in a {@code replay.position} file, and segments before it are deleted.
+ */
+public class GateEventJournal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventJournal");
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final int MAX_RECORD_SIZE = 1024;
+    private static final String SEGMENT_PREFIX = "gate-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String REPLAY_POSITION_FILE = "replay.position";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private final Object appendLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long segment;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segmentBuffer;
+    private volatile long appendedPosition;
+
+    private final Object syncLock = new Object();
+    private long requestedPosition;
+    private long durablePosition;
+    private final Thread syncer;
+    private volatile boolean running = true;
+
+    private long replayPosition;
+
+    // Entries not yet replayed to the database, by plate, for exits that happen before their entry is replayed
+    private final ConcurrentMap<String, GateEvent> pendingEntries = new ConcurrentHashMap<>();
+
+    public GateEventJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and resumes appending after the last complete event.
+     */
+    public GateEventJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        replayPosition = readReplayPosition();
+        long lastSegment = Math.max(replayPosition / segmentSize, lastSegment());
+        openSegment(lastSegment);
+        int end = scanSegment(segmentBuffer);
+        // Clear whatever a crash left after the last complete event, so it cannot be mistaken for a record later
+        for (int i = end; i < segmentSize; i++) {
+            segmentBuffer.put(i, (byte) 0);
+        }
+        segmentBuffer.position(end);
+        appendedPosition = lastSegment * segmentSize + end;
+        durablePosition = appendedPosition;
+        requestedPosition = appendedPosition;
+        for (Record pending : read(replayPosition, Integer.MAX_VALUE)) {
+            trackPendingEntry(pending.getEvent());
+        }
+        syncer = new Thread(this::runSyncer, "gate-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Appends an event. It is not durable until {@link #awaitDurable(long)} returns for the position returned.
+     *
+     * @return the position just after the event.
+     */
+    public long append(GateEvent event) throws IOException {
+        synchronized (appendLock) {
+            JournalRecordUtil.beginRecord(record);
+            record.put((byte) event.getType().ordinal());
+            JournalRecordUtil.putString(record, event.getIdempotencyKey());
+            record.putInt(event.getTicketId());
+            JournalRecordUtil.putString(record, event.getVehicleRegNumber());
+            record.put((byte) (event.getParkingType() == null ? -1 : event.getParkingType().ordinal()));
+            record.putInt(event.getParkingNumber());
+            record.putLong(event.getTime());
+            record.putDouble(event.getPrice());
+            JournalRecordUtil.endRecord(record, crc);
+
+            // Keep a zero length after the record, which marks the end of the segment
+            if (segmentBuffer.remaining() < record.remaining() + 4) {
+                rollSegment();
+            }
+            segmentBuffer.put(record);
+            appendedPosition = segment * segmentSize + segmentBuffer.position();
+            trackPendingEntry(event);
+            return appendedPosition;
+        }
+    }
+
+    /**
+     * Waits until every event up to the position is on disk.
+     */
+    public void awaitDurable(long position) throws IOException {
+        synchronized (syncLock) {
+            if (position > requestedPosition) {
+                requestedPosition = position;
+                syncLock.notifyAll();
+            }
+            while (durablePosition < position) {
+                if (!running) {
+                    throw new IOException("Gate journal closed");
+                }
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the gate journal", e);
+                }
+            }
+        }
+    }
+
+    private void runSyncer() {
+        while (true) {
+            synchronized (syncLock) {
+                while (running && requestedPosition <= durablePosition) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    syncLock.notifyAll();
+                    return;
+                }
+            }
+            long position;
+            MappedByteBuffer buffer;
+            synchronized (appendLock) {
+                position = appendedPosition;
+                buffer = segmentBuffer;
+            }
+            // Everything appended so far is forced, including events of gates that have not asked yet
+            buffer.force();
+            synchronized (syncLock) {
+                durablePosition = Math.max(durablePosition, position);
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    public long getAppendedPosition() {
+        return appendedPosition;
+    }
+
+    public synchronized long getReplayPosition() {
+        return replayPosition;
+    }
+
+    /**
+     * @return the entry not yet replayed for the plate, or null.
+     */
+    public GateEvent getPendingEntry(String vehicleRegNumber) {
+        return vehicleRegNumber == null ? null : pendingEntries.get(vehicleRegNumber);
+    }
+
+    /**
+     * Reads the events from a position, up to the last event appended.
+     */
+    public List<Record> read(long fromPosition, int maxEvents) throws IOException {
+        List<Record> records = new ArrayList<>();
+        long limit = appendedPosition;
+        long position = fromPosition;
+        while (position < limit && records.size() < maxEvents) {
+            long segmentNumber = position / segmentSize;
+            Path path = segmentPath(segmentNumber);
+            if (!Files.exists(path)) {
+                break;
+            }
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            }
+            int offset = (int) (position % segmentSize);
+            buffer.position(offset);
+            while (records.size() < maxEvents && segmentNumber * segmentSize + buffer.position() < limit) {
+                GateEvent event = readRecord(buffer);
+                if (event == null) {
+                    break;
+                }
+                records.add(new Record(event, segmentNumber * segmentSize + buffer.position()));
+            }
+            long next = segmentNumber * segmentSize + buffer.position();
+            if (records.size() < maxEvents && next < limit) {
+                // End of this segment, continue with the next one
+                next = (segmentNumber + 1) * segmentSize;
+            }
+            if (next == position) {
+                break;
+            }
+            position = next;
+        }
+        return records;
+    }
+
+    /**
+     * Records that the events up to the position are in the database and deletes the segments before it.
+     */
+    public synchronized void markReplayed(List<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        for (Record replayed : records) {
+            GateEvent event = replayed.getEvent();
+            if (event.getType() == GateEvent.Type.ENTRY) {
+                // The replayed event is a copy read back from the journal, so the pending entry is matched by key
+                String idempotencyKey = event.getIdempotencyKey();
+                pendingEntries.computeIfPresent(event.getVehicleRegNumber(),
+                        (plate, pending) -> Objects.equals(pending.getIdempotencyKey(), idempotencyKey) ? null : pending);
+            }
+        }
+        replayPosition = records.get(records.size() - 1).getPosition();
+        Path tmp = directory.resolve(REPLAY_POSITION_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, replayPosition);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(REPLAY_POSITION_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        long replayedSegment = replayPosition / segmentSize;
+        for (long old = replayedSegment - 1; old >= 0 && Files.deleteIfExists(segmentPath(old)); old--) {
+            logger.debug("Deleted replayed gate journal segment {}", old);
+        }
+    }
+
+    private void trackPendingEntry(GateEvent event) {
+        if (event.getType() == GateEvent.Type.ENTRY) {
+            pendingEntries.put(event.getVehicleRegNumber(), event);
+        } else {
+            pendingEntries.remove(event.getVehicleRegNumber());
+        }
+    }
+
+    private GateEvent readRecord(ByteBuffer buffer) {
+        ByteBuffer event = JournalRecordUtil.readRecord(buffer, MAX_RECORD_SIZE);
+        if (event == null) {
+            return null;
+        }
+        GateEvent.Type type = GateEvent.Type.values()[event.get()];
+        String idempotencyKey = JournalRecordUtil.getString(event);
+        int ticketId = event.getInt();
+        String vehicleRegNumber = JournalRecordUtil.getString(event);
+        byte typeOrdinal = event.get();
+        ParkingType parkingType = typeOrdinal < 0 ? null : ParkingType.values()[typeOrdinal];
+        return new GateEvent(type, idempotencyKey, ticketId, vehicleRegNumber, parkingType,
+                event.getInt(), event.getLong(), event.getDouble());
+    }
+
+    // Returns the offset just after the last complete event of the segment
+    private int scanSegment(MappedByteBuffer segmentBuffer) {
+        ByteBuffer buffer = segmentBuffer.duplicate();
+        buffer.position(0);
+        while (readRecord(buffer) != null) {
+            // Skip to the end
+        }
+        return buffer.position();
+    }
+
+    private void rollSegment() throws IOException {
+        segmentBuffer.force();
+        segmentChannel.close();
+        openSegment(segment + 1);
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        segmentChannel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentBuffer = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private long lastSegment() throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : segments) {
+                String name = path.getFileName().toString();
+                last = Math.max(last, Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        return last;
+    }
+
+    private long readReplayPosition() throws IOException {
+        Path path = directory.resolve(REPLAY_POSITION_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        return bytes.length == 8 ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    /**
+     * Forces the journal to disk and stops the sync thread.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            segmentBuffer.force();
+            segmentChannel.close();
+        }
+        synchronized (syncLock) {
+            durablePosition = appendedPosition;
+            running = false;
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * A journaled event and the position just after it.
+     */
+    public static class Record {
+
+        private final GateEvent event;
+        private final long position;
+
+        public Record(GateEvent event, long position) {
+            this.event = event;
+            this.position = position;
+        }
+
+        public GateEvent getEvent() {
+            return event;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+    }
+}
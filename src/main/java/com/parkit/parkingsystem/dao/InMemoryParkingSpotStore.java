@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Parking spots kept in memory only, for load tests and as a fast stand-in for the database in tests.
+ * The type of each spot is held in an array indexed by parking number and its availability in a
+ * {@link ParkingSpotAvailabilityIndex}, so spots are claimed and freed without locks or queries.
+ */
+public class InMemoryParkingSpotStore implements ParkingSpotStore {
+
+    private final ParkingType[] typeByNumber;
+    private final ParkingSpotAvailabilityIndex availabilityIndex;
+
+    /**
+     * Creates free spots numbered from 1, spot n having the type at position n - 1.
+     */
+    public InMemoryParkingSpotStore(ParkingType... spotTypes) {
+        typeByNumber = new ParkingType[spotTypes.length + 1];
+        availabilityIndex = new ParkingSpotAvailabilityIndex(spotTypes.length);
+        for (int i = 0; i < spotTypes.length; i++) {
+            typeByNumber[i + 1] = spotTypes[i];
+            availabilityIndex.setAvailable(spotTypes[i], i + 1, true);
+        }
+    }
+
+    /**
+     * Creates free car spots numbered from 1, followed by free bike spots, like the default parking table.
+     */
+    public static InMemoryParkingSpotStore withSpots(int carSpots, int bikeSpots) {
+        ParkingType[] spotTypes = new ParkingType[carSpots + bikeSpots];
+        for (int i = 0; i < spotTypes.length; i++) {
+            spotTypes[i] = i < carSpots ? ParkingType.CAR : ParkingType.BIKE;
+        }
+        return new InMemoryParkingSpotStore(spotTypes);
+    }
+
+    public Integer getNextAvailableSlot(ParkingType parkingType) {
+        return availabilityIndex.peek(parkingType);
+    }
+
+    public int getAvailableSlotCount(ParkingType parkingType) {
+        return availabilityIndex.countAvailable(parkingType);
+    }
+
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        int parkingNumber = availabilityIndex.claim(parkingType);
+        if (parkingNumber >= 0) {
+            UnitOfWork.runAfterRollback(() -> availabilityIndex.setAvailable(parkingType, parkingNumber, true));
+        }
+        return parkingNumber;
+    }
+
+    /**
+     * Records the availability of a spot; its type is the one the store was created with.
+     */
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        int parkingNumber = parkingSpot.getId();
+        if (parkingNumber <= 0 || parkingNumber >= typeByNumber.length) {
+            return false;
+        }
+        ParkingType parkingType = typeByNumber[parkingNumber];
+        boolean available = parkingSpot.isAvailable();
+        if (availabilityIndex.setAvailable(parkingType, parkingNumber, available)) {
+            UnitOfWork.runAfterRollback(() -> availabilityIndex.setAvailable(parkingType, parkingNumber, !available));
+        }
+        return true;
+    }
+
+    public ParkingSpotAvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * @return the type of a spot, or null if there is no such spot.
+     */
+    public ParkingType getParkingType(int parkingNumber) {
+        return parkingNumber > 0 && parkingNumber < typeByNumber.length ? typeByNumber[parkingNumber] : null;
+    }
+}
@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tickets kept in memory only, for load tests and as a fast stand-in for the database in tests.
+ * Tickets are stored and handed out as copies, so like with {@link TicketDAO} a ticket read from the store
+ * only changes once it is updated. As with the database, a vehicle is expected to be handled by one gate at a time.
+ */
+public class InMemoryTicketStore implements TicketStore {
+
+    private final AtomicInteger lastTicketId = new AtomicInteger();
+    private final ConcurrentMap<Integer, Ticket> ticketsById = new ConcurrentHashMap<>();
+    // Open ticket id, else latest ticket id, by vehicle registration number
+    private final ConcurrentMap<String, Integer> openTicketIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> latestTicketIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> ticketCounts = new ConcurrentHashMap<>();
+
+    public boolean saveTicket(Ticket ticket) {
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        int ticketId = lastTicketId.incrementAndGet();
+        ticket.setId(ticketId);
+        ticketsById.put(ticketId, copy(ticket));
+        Integer previousLatestId = latestTicketIds.put(vehicleRegNumber, ticketId);
+        Integer previousOpenId = ticket.getOutTime() == null ? openTicketIds.put(vehicleRegNumber, ticketId) : null;
+        AtomicInteger count = ticketCounts.computeIfAbsent(vehicleRegNumber, plate -> new AtomicInteger());
+        count.incrementAndGet();
+        UnitOfWork.runAfterRollback(() -> {
+            ticketsById.remove(ticketId);
+            restore(latestTicketIds, vehicleRegNumber, ticketId, previousLatestId);
+            restore(openTicketIds, vehicleRegNumber, ticketId, previousOpenId);
+            count.decrementAndGet();
+        });
+        return true;
+    }
+
+    private static void restore(ConcurrentMap<String, Integer> ticketIds, String vehicleRegNumber, int ticketId, Integer previousId) {
+        if (previousId == null) {
+            ticketIds.remove(vehicleRegNumber, ticketId);
+        } else {
+            ticketIds.replace(vehicleRegNumber, ticketId, previousId);
+        }
+    }
+
+    public Ticket getTicket(String vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            return null;
+        }
+        Integer ticketId = openTicketIds.get(vehicleRegNumber);
+        if (ticketId == null) {
+            ticketId = latestTicketIds.get(vehicleRegNumber);
+        }
+        Ticket ticket = ticketId == null ? null : ticketsById.get(ticketId);
+        return ticket == null ? null : copy(ticket);
+    }
+
+    public boolean updateTicket(Ticket ticket) {
+        int ticketId = ticket.getId();
+        Ticket previous = ticketsById.get(ticketId);
+        if (previous == null) {
+            return false;
+        }
+        Ticket updated = copy(previous);
+        updated.setPrice(ticket.getPrice());
+        updated.setOutTime(ticket.getOutTime());
+        ticketsById.put(ticketId, updated);
+        String vehicleRegNumber = previous.getVehicleRegNumber();
+        boolean closed = updated.getOutTime() != null && openTicketIds.remove(vehicleRegNumber, ticketId);
+        UnitOfWork.runAfterRollback(() -> {
+            ticketsById.replace(ticketId, updated, previous);
+            if (closed) {
+                openTicketIds.putIfAbsent(vehicleRegNumber, ticketId);
+            }
+        });
+        return true;
+    }
+
+    public int getTicketCount(String vehicleRegNumber) {
+        AtomicInteger count = ticketCounts.get(vehicleRegNumber);
+        return count == null ? 0 : count.get();
+    }
+
+    public boolean getNbTicket(String vehicleRegNumber) {
+        return getTicketCount(vehicleRegNumber) > 2;
+    }
+
+    /**
+     * @return the number of tickets in the store.
+     */
+    public int size() {
+        return ticketsById.size();
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        if (parkingSpot != null) {
+            ParkingSpot spotCopy = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+            spotCopy.setSiteId(parkingSpot.getSiteId());
+            copy.setParkingSpot(spotCopy);
+        }
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        copy.setIdempotencyKey(ticket.getIdempotencyKey());
+        copy.setSiteId(ticket.getSiteId());
+        return copy;
+    }
+}
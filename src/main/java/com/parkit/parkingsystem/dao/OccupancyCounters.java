@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of free spots of each {@link ParkingType}, kept in memory so entrance signs can show it without a query.
+ * Each count is a striped counter, so gates claiming and freeing spots at the same time do not contend on it.
+ * {@link ParkingSpotDAO} adjusts the counts as its changes commit, and {@link #reconcile(ParkingType, long)}
+ * brings them back in line with the parking table, which stays the reference.
+ */
+public class OccupancyCounters {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyCounters");
+
+    /**
+     * Notified whenever the number of free spots of a type changes, on the thread that changed it.
+     * Listeners must return quickly, e.g. by handing the new count over to the sign they refresh.
+     */
+    public interface Listener {
+        void onAvailabilityChanged(ParkingType parkingType, long available);
+    }
+
+    private final LongAdder[] availableByType;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean reconciled;
+
+    public OccupancyCounters() {
+        ParkingType[] types = ParkingType.values();
+        availableByType = new LongAdder[types.length];
+        for (int i = 0; i < types.length; i++) {
+            availableByType[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the number of free spots of the given type.
+     */
+    public long getAvailable(ParkingType parkingType) {
+        return availableByType[parkingType.ordinal()].sum();
+    }
+
+    /**
+     * @return true once the counts were read from the parking table at least once.
+     */
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    /**
+     * Records spots of the given type being freed (positive delta) or taken (negative delta).
+     */
+    public void add(ParkingType parkingType, long delta) {
+        LongAdder available = availableByType[parkingType.ordinal()];
+        available.add(delta);
+        notifyListeners(parkingType, available.sum());
+    }
+
+    /**
+     * Sets the count of a type to the number of free spots read from the parking table. Changes counted while the
+     * table was read may be lost or counted twice; the next reconciliation corrects them.
+     *
+     * @return the difference between the counted and the actual number of free spots.
+     */
+    public long reconcile(ParkingType parkingType, long actualAvailable) {
+        LongAdder available = availableByType[parkingType.ordinal()];
+        long drift = available.sum() - actualAvailable;
+        if (drift != 0) {
+            available.add(-drift);
+            notifyListeners(parkingType, actualAvailable);
+        }
+        return drift;
+    }
+
+    void markReconciled() {
+        reconciled = true;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(ParkingType parkingType, long available) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onAvailabilityChanged(parkingType, available);
+            } catch (RuntimeException e) {
+                logger.error("Occupancy listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory view of which parking spots are free, one bitset per {@link ParkingType}.
+ * Bit n of a type's bitset is set when spot number n is of that type and available.
+ * Claiming a spot clears its bit with a compare-and-set, so any number of threads can claim and release
+ * spots without a lock and a spot is never handed to two of them.
+ */
+public class ParkingSpotAvailabilityIndex {
+
+    private static final int BITS_PER_WORD = 64;
+
+    private final int capacity;
+    private final AtomicLongArray[] freeSpotsByType;
+    // Per type, a word below which no free spot is expected; only a starting point for the search
+    private final AtomicIntegerArray searchStartByType;
+
+    /**
+     * @param maxParkingNumber the highest parking number the index has to hold.
+     */
+    public ParkingSpotAvailabilityIndex(int maxParkingNumber) {
+        this.capacity = maxParkingNumber + 1;
+        int words = (capacity + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        ParkingType[] types = ParkingType.values();
+        this.freeSpotsByType = new AtomicLongArray[types.length];
+        for (int i = 0; i < types.length; i++) {
+            freeSpotsByType[i] = new AtomicLongArray(words);
+        }
+        this.searchStartByType = new AtomicIntegerArray(types.length);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean contains(int parkingNumber) {
+        return parkingNumber >= 0 && parkingNumber < capacity;
+    }
+
+    /**
+     * Claims the lowest free spot of the given type.
+     *
+     * @return the claimed parking number, or -1 if no spot of that type is free.
+     */
+    public int claim(ParkingType parkingType) {
+        int type = parkingType.ordinal();
+        AtomicLongArray freeSpots = freeSpotsByType[type];
+        int start = searchStartByType.get(type);
+        int claimed = claimFrom(freeSpots, start, freeSpots.length());
+        if (claimed < 0 && start > 0) {
+            // A spot below the search start may have been released concurrently
+            claimed = claimFrom(freeSpots, 0, start);
+        }
+        if (claimed >= 0) {
+            searchStartByType.set(type, claimed / BITS_PER_WORD);
+        }
+        return claimed;
+    }
+
+    private int claimFrom(AtomicLongArray freeSpots, int fromWord, int toWord) {
+        for (int word = fromWord; word < toWord; word++) {
+            long bits;
+            while ((bits = freeSpots.get(word)) != 0) {
+                long lowestBit = Long.lowestOneBit(bits);
+                if (freeSpots.compareAndSet(word, bits, bits & ~lowestBit)) {
+                    return word * BITS_PER_WORD + Long.numberOfTrailingZeros(lowestBit);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the lowest free spot of the given type without claiming it.
+     *
+     * @return the parking number, or -1 if no spot of that type is free.
+     */
+    public int peek(ParkingType parkingType) {
+        AtomicLongArray freeSpots = freeSpotsByType[parkingType.ordinal()];
+        for (int word = 0; word < freeSpots.length(); word++) {
+            long bits = freeSpots.get(word);
+            if (bits != 0) {
+                return word * BITS_PER_WORD + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records whether a spot is available.
+     *
+     * @return true if this changed the spot's state, false if it already had it.
+     */
+    public boolean setAvailable(ParkingType parkingType, int parkingNumber, boolean available) {
+        int type = parkingType.ordinal();
+        AtomicLongArray freeSpots = freeSpotsByType[type];
+        int word = parkingNumber / BITS_PER_WORD;
+        long bit = 1L << (parkingNumber % BITS_PER_WORD);
+        while (true) {
+            long bits = freeSpots.get(word);
+            long updated = available ? bits | bit : bits & ~bit;
+            if (updated == bits) {
+                return false;
+            }
+            if (freeSpots.compareAndSet(word, bits, updated)) {
+                if (available) {
+                    lowerSearchStart(type, word);
+                }
+                return true;
+            }
+        }
+    }
+
+    public boolean isAvailable(ParkingType parkingType, int parkingNumber) {
+        long bits = freeSpotsByType[parkingType.ordinal()].get(parkingNumber / BITS_PER_WORD);
+        return (bits & (1L << (parkingNumber % BITS_PER_WORD))) != 0;
+    }
+
+    public int countAvailable(ParkingType parkingType) {
+        AtomicLongArray freeSpots = freeSpotsByType[parkingType.ordinal()];
+        int count = 0;
+        for (int word = 0; word < freeSpots.length(); word++) {
+            count += Long.bitCount(freeSpots.get(word));
+        }
+        return count;
+    }
+
+    private void lowerSearchStart(int type, int word) {
+        int start;
+        while (word < (start = searchStartByType.get(type))) {
+            if (searchStartByType.compareAndSet(type, start, word)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-through cache of the type of each parking spot, so tickets can be read without joining the parking table.
+ * Parking numbers are dense, so spots are held in an array indexed by parking number, grown when a higher number is seen.
+ * The cached spots are shared between all the tickets on that spot and always report themselves occupied:
+ * they must not be modified. A spot whose type changes in the database must be invalidated.
+ */
+public class ParkingSpotCache {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String siteId;
+    private volatile AtomicReferenceArray<ParkingSpot> spotsByNumber = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    public ParkingSpotCache() {
+        this(null);
+    }
+
+    /**
+     * @param siteId the site whose spots are cached, set on every spot; null for a single-site setup.
+     */
+    public ParkingSpotCache(String siteId) {
+        this.siteId = siteId;
+    }
+
+    /**
+     * Loads every spot of the parking table, replacing what was cached.
+     *
+     * @return the number of spots loaded.
+     * @throws SQLException if the parking table cannot be read.
+     */
+    public int load(Connection con) throws SQLException {
+        int loaded = 0;
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+             ResultSet rs = ps.executeQuery()) {
+            AtomicReferenceArray<ParkingSpot> spots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+            while (rs.next()) {
+                int parkingNumber = rs.getInt(1);
+                if (parkingNumber >= spots.length()) {
+                    spots = copyOf(spots, Math.max(parkingNumber + 1, spots.length() * 2));
+                }
+                spots.set(parkingNumber, newParkingSpot(parkingNumber, ParkingType.valueOf(rs.getString(3))));
+                loaded++;
+            }
+            synchronized (this) {
+                spotsByNumber = spots;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the shared spot for a parking number, reading its type with the given connection if it is not cached.
+     *
+     * @return the spot, or null if the parking table has no such spot.
+     * @throws SQLException if the spot cannot be read.
+     */
+    public ParkingSpot get(Connection con, int parkingNumber) throws SQLException {
+        ParkingSpot parkingSpot = getIfCached(parkingNumber);
+        if (parkingSpot != null || parkingNumber < 0) {
+            return parkingSpot;
+        }
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT_TYPE)) {
+            ps.setInt(1, parkingNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                parkingSpot = newParkingSpot(parkingNumber, ParkingType.valueOf(rs.getString(1)));
+            }
+        }
+        put(parkingSpot);
+        return parkingSpot;
+    }
+
+    private ParkingSpot newParkingSpot(int parkingNumber, ParkingType parkingType) {
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+        parkingSpot.setSiteId(siteId);
+        return parkingSpot;
+    }
+
+    /**
+     * @return the cached spot for a parking number, or null if it is not cached.
+     */
+    public ParkingSpot getIfCached(int parkingNumber) {
+        AtomicReferenceArray<ParkingSpot> spots = spotsByNumber;
+        if (parkingNumber < 0 || parkingNumber >= spots.length()) {
+            return null;
+        }
+        return spots.get(parkingNumber);
+    }
+
+    private synchronized void put(ParkingSpot parkingSpot) {
+        int parkingNumber = parkingSpot.getId();
+        AtomicReferenceArray<ParkingSpot> spots = spotsByNumber;
+        if (parkingNumber >= spots.length()) {
+            spots = copyOf(spots, Math.max(parkingNumber + 1, spots.length() * 2));
+            spots.set(parkingNumber, parkingSpot);
+            spotsByNumber = spots;
+        } else {
+            spots.set(parkingNumber, parkingSpot);
+        }
+    }
+
+    private static AtomicReferenceArray<ParkingSpot> copyOf(AtomicReferenceArray<ParkingSpot> spots, int length) {
+        AtomicReferenceArray<ParkingSpot> copy = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < spots.length(); i++) {
+            copy.set(i, spots.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Forgets a spot, so its type is read again on next use.
+     */
+    public synchronized void invalidate(int parkingNumber) {
+        AtomicReferenceArray<ParkingSpot> spots = spotsByNumber;
+        if (parkingNumber >= 0 && parkingNumber < spots.length()) {
+            spots.set(parkingNumber, null);
+        }
+    }
+
+    /**
+     * Forgets every spot, e.g. after the parking table was edited by hand.
+     */
+    public synchronized void invalidateAll() {
+        spotsByNumber = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        AtomicReferenceArray<ParkingSpot> spots = spotsByNumber;
+        int size = 0;
+        for (int i = 0; i < spots.length(); i++) {
+            if (spots.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+}
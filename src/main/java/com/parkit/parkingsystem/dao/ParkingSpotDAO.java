@@ -1,8 +1,11 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,50 +13,364 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final Timer loadAvailabilityIndexTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.loadAvailabilityIndex");
+    private static final Timer getNextAvailableSlotTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.getNextAvailableSlot");
+    private static final Timer getAvailableSlotCountTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.getAvailableSlotCount");
+    private static final Timer reconcileOccupancyTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.reconcileOccupancy");
+    private static final Timer claimNextAvailableSlotTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.claimNextAvailableSlot");
+    private static final Timer updateParkingTimer = MetricsRegistry.getDefault().timer("ParkingSpotDAO.updateParking");
+
+    // Number of free spots fetched per claim round, so a caller finding one held by another can try the next one
+    private static final int CLAIM_CANDIDATES = 8;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    // In-memory availability of every spot, used for allocation once loaded; null until loadAvailabilityIndex()
+    public ParkingSpotAvailabilityIndex availabilityIndex;
+
+    // Filled with the type of every spot along with the availability index, when set; usually shared with TicketDAO
+    public ParkingSpotCache parkingSpotCache;
+
+    // Free spots per type, adjusted as claims and updates commit; null to count them in the parking table
+    public OccupancyCounters occupancyCounters;
+
+    public ParkingSpotAvailabilityIndex getAvailabilityIndex(){
+        return availabilityIndex;
+    }
+
+    /**
+     * Loads the availability of every spot from the parking table into memory.
+     * From then on spots are allocated from the in-memory index, the database only confirming each claim,
+     * and updateParking keeps the index in sync. The spot cache, if any, is loaded too.
+     *
+     * @return true if the index was loaded, false if the parking table could not be read.
+     */
+    public boolean loadAvailabilityIndex(){
+        long start = loadAvailabilityIndexTimer.start();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            ResultSet rs = ps.executeQuery();
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            int maxParkingNumber = 0;
+            while(rs.next()){
+                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2));
+                parkingSpots.add(parkingSpot);
+                maxParkingNumber = Math.max(maxParkingNumber, parkingSpot.getId());
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            ParkingSpotAvailabilityIndex index = new ParkingSpotAvailabilityIndex(maxParkingNumber);
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                index.setAvailable(parkingSpot.getParkingType(), parkingSpot.getId(), parkingSpot.isAvailable());
+            }
+            availabilityIndex = index;
+            if (parkingSpotCache != null) {
+                parkingSpotCache.load(con);
+            }
+            logger.info("Loaded availability of {} parking spots", parkingSpots.size());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading parking spot availability",ex);
+            return false;
+        }finally {
+            loadAvailabilityIndexTimer.stop(start);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
     public Integer getNextAvailableSlot(ParkingType parkingType){
+        long start = getNextAvailableSlotTimer.start();
+        try {
+            if (availabilityIndex != null) {
+                return availabilityIndex.peek(parkingType);
+            }
+            Connection con = null;
+            int result=-1;
+            try {
+                con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+                ps.setString(1, parkingType.toString());
+                ResultSet rs = ps.executeQuery();
+                if(rs.next()){
+                    result = rs.getInt(1);;
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }catch (Exception ex){
+                logger.error("Error fetching next available slot",ex);
+            }finally {
+                dataBaseConfig.closeConnection(con);
+            }
+            return result;
+        } finally {
+            getNextAvailableSlotTimer.stop(start);
+        }
+    }
+
+    /**
+     * Counts the free spots of the given type, from the occupancy counters once reconciled,
+     * else from the availability index once loaded.
+     *
+     * @return the number of free spots, or -1 if an error occurred.
+     */
+    public int getAvailableSlotCount(ParkingType parkingType){
+        long start = getAvailableSlotCountTimer.start();
+        try {
+            OccupancyCounters counters = occupancyCounters;
+            if (counters != null && counters.isReconciled()) {
+                return (int) counters.getAvailable(parkingType);
+            }
+            if (availabilityIndex != null) {
+                return availabilityIndex.countAvailable(parkingType);
+            }
+            Connection con = null;
+            int result=-1;
+            try {
+                con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS);
+                ps.setString(1, parkingType.toString());
+                ResultSet rs = ps.executeQuery();
+                if(rs.next()){
+                    result = rs.getInt(1);
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }catch (Exception ex){
+                logger.error("Error counting available slots",ex);
+            }finally {
+                dataBaseConfig.closeConnection(con);
+            }
+            return result;
+        } finally {
+            getAvailableSlotCountTimer.stop(start);
+        }
+    }
+
+    /**
+     * Sets the occupancy counters to the number of free spots of each type in the parking table.
+     * Meant to run at startup and then on a schedule, to correct changes made behind the DAO's back.
+     *
+     * @return true if the counters were reconciled, false if there are none or the parking table could not be read.
+     */
+    public boolean reconcileOccupancy(){
+        long start = reconcileOccupancyTimer.start();
+        OccupancyCounters counters = occupancyCounters;
+        if (counters == null) {
+            return false;
+        }
         Connection con = null;
-        int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
+            PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS_BY_TYPE);
             ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                result = rs.getInt(1);;
+            long[] availableByType = new long[ParkingType.values().length];
+            while(rs.next()){
+                availableByType[ParkingType.valueOf(rs.getString(1)).ordinal()] = rs.getLong(2);
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
+            boolean wasReconciled = counters.isReconciled();
+            for (ParkingType parkingType : ParkingType.values()) {
+                long drift = counters.reconcile(parkingType, availableByType[parkingType.ordinal()]);
+                if (drift != 0 && wasReconciled) {
+                    logger.warn("Corrected the count of free {} spots by {}", parkingType, -drift);
+                }
+            }
+            counters.markReconciled();
+            return true;
+        }catch (Exception ex){
+            logger.error("Error reconciling occupancy counters",ex);
+            return false;
+        }finally {
+            reconcileOccupancyTimer.stop(start);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void countOnCommit(ParkingType parkingType, long delta){
+        OccupancyCounters counters = occupancyCounters;
+        if (counters != null && parkingType != null) {
+            UnitOfWork.runAfterCommit(() -> counters.add(parkingType, delta));
+        }
+    }
+
+    /**
+     * Finds a free spot of the given type and marks it unavailable in one atomic step.
+     * Free spots are read a few at a time, each round resuming after the last candidate. Each candidate is then
+     * locked by parking number with a locking read that returns nothing when another transaction holds the spot,
+     * and taken with a conditional update, both in the caller's unit of work or one of their own. Claims stay
+     * locked until their entries commit, so concurrent callers skip one another's spots instead of waiting on
+     * them. Being a locking read, it also sees the latest committed spot under REPEATABLE READ, where the
+     * candidates themselves may come from an older snapshot.
+     *
+     * @param parkingType the type of spot to claim.
+     * @return the claimed parking number, or -1 if no spot is available or an error occurred.
+     */
+    public int claimNextAvailableSlot(ParkingType parkingType){
+        long start = claimNextAvailableSlotTimer.start();
+        try {
+            if (availabilityIndex != null) {
+                return claimNextIndexedSlot(parkingType);
+            }
+            // The connection belongs to the unit of work, which hands it back to the pool on close
+            try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+                Connection con = dataBaseConfig.getConnection();
+                int claimed = -1;
+                int after = 0;
+                while (claimed < 0) {
+                    int[] candidates = getAvailableSlotsAfter(con, parkingType, after);
+                    if (candidates.length == 0) {
+                        break;
+                    }
+                    for (int candidate : candidates) {
+                        if (lockAvailableSlot(con, candidate) && claimSlot(con, candidate)) {
+                            claimed = candidate;
+                            break;
+                        }
+                    }
+                    after = candidates[candidates.length - 1];
+                }
+                if (claimed > 0) {
+                    countOnCommit(parkingType, -1);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Claimed parking slot {} for {}", claimed, parkingType);
+                    }
+                }
+                unitOfWork.commit();
+                return claimed;
+            }catch (Exception ex){
+                logger.error("Error claiming next available slot",ex);
+            }
+            return -1;
+        } finally {
+            claimNextAvailableSlotTimer.stop(start);
+        }
+    }
+
+    private int claimNextIndexedSlot(ParkingType parkingType){
+        ParkingSpotAvailabilityIndex index = availabilityIndex;
+        Connection con = null;
+        int parkingNumber = -1;
+        try {
+            con = dataBaseConfig.getConnection();
+            while ((parkingNumber = index.claim(parkingType)) >= 0) {
+                if (claimSlot(con, parkingNumber)) {
+                    int claimed = parkingNumber;
+                    UnitOfWork.runAfterRollback(() -> index.setAvailable(parkingType, claimed, true));
+                    countOnCommit(parkingType, -1);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Claimed parking slot {} for {}", parkingNumber, parkingType);
+                    }
+                    return parkingNumber;
+                }
+                // Taken in the database behind the index's back: leave it out of the index and try the next one
+                logger.warn("Parking slot {} was free in memory but not in the database", parkingNumber);
+            }
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error claiming next available slot",ex);
+            if (parkingNumber >= 0) {
+                index.setAvailable(parkingType, parkingNumber, true);
+            }
         }finally {
             dataBaseConfig.closeConnection(con);
         }
-        return result;
+        return -1;
+    }
+
+    private int[] getAvailableSlotsAfter(Connection con, ParkingType parkingType, int after) throws Exception {
+        PreparedStatement ps = con.prepareStatement(DBConstants.GET_AVAILABLE_PARKING_SPOTS_AFTER);
+        ps.setString(1, parkingType.toString());
+        ps.setInt(2, after);
+        ps.setInt(3, CLAIM_CANDIDATES);
+        ResultSet rs = ps.executeQuery();
+        int[] candidates = new int[CLAIM_CANDIDATES];
+        int count = 0;
+        while(rs.next()){
+            candidates[count++] = rs.getInt(1);
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private boolean lockAvailableSlot(Connection con, int parkingNumber) throws Exception {
+        PreparedStatement ps = con.prepareStatement(DBConstants.LOCK_AVAILABLE_PARKING_SPOT);
+        ps.setInt(1, parkingNumber);
+        ResultSet rs = ps.executeQuery();
+        boolean locked = rs.next();
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        return locked;
+    }
+
+    private boolean claimSlot(Connection con, int parkingNumber) throws Exception {
+        PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+        ps.setInt(1, parkingNumber);
+        int updateRowCount = ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        return updateRowCount == 1;
     }
 
     public boolean updateParking(ParkingSpot parkingSpot){
+        long start = updateParkingTimer.start();
         //update the availability fo that parking slot
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
+            if (occupancyCounters != null) {
+                // Only count spots whose availability actually changes; the plain update then just checks the spot exists
+                PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT_IF_CHANGED);
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+                ps.setBoolean(3, parkingSpot.isAvailable());
+                int changedRowCount = ps.executeUpdate();
+                dataBaseConfig.closePreparedStatement(ps);
+                if (changedRowCount == 1) {
+                    countOnCommit(parkingSpot.getParkingType(), parkingSpot.isAvailable() ? 1 : -1);
+                    syncAvailabilityIndex(parkingSpot);
+                    return true;
+                }
+            }
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
             ps.setBoolean(1, parkingSpot.isAvailable());
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
+            if (updateRowCount == 1) {
+                syncAvailabilityIndex(parkingSpot);
+            }
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
             return false;
         }finally {
+            updateParkingTimer.stop(start);
             dataBaseConfig.closeConnection(con);
         }
     }
 
+    private void syncAvailabilityIndex(ParkingSpot parkingSpot){
+        ParkingSpotAvailabilityIndex index = availabilityIndex;
+        if (index == null || !index.contains(parkingSpot.getId()) || parkingSpot.getParkingType() == null) {
+            return;
+        }
+        ParkingType parkingType = parkingSpot.getParkingType();
+        int parkingNumber = parkingSpot.getId();
+        if (parkingSpot.isAvailable()) {
+            // Only offer the spot again once freeing it is committed
+            UnitOfWork.runAfterCommit(() -> index.setAvailable(parkingType, parkingNumber, true));
+        } else if (index.setAvailable(parkingType, parkingNumber, false)) {
+            UnitOfWork.runAfterRollback(() -> index.setAvailable(parkingType, parkingNumber, true));
+        }
+    }
+
 }
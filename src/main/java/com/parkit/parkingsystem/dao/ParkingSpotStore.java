@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Where parking spots and their availability are kept, as used by the parking service.
+ * {@link ParkingSpotDAO} keeps them in the database, {@link InMemoryParkingSpotStore} in memory.
+ * Changes made inside a {@link com.parkit.parkingsystem.config.UnitOfWork} are undone if it is rolled back.
+ */
+public interface ParkingSpotStore {
+
+    /**
+     * @return the lowest free spot of the given type without claiming it, or -1 if there is none or an error occurred.
+     */
+    Integer getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * @return the number of free spots of the given type, or -1 if an error occurred.
+     */
+    int getAvailableSlotCount(ParkingType parkingType);
+
+    /**
+     * Finds a free spot of the given type and marks it unavailable in one atomic step,
+     * so concurrent callers are never handed the same spot.
+     *
+     * @return the claimed parking number, or -1 if no spot is available or an error occurred.
+     */
+    int claimNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Records the availability of a spot.
+     *
+     * @return true if the spot exists and was updated.
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * @return the in-memory availability of the spots, or null if spots are allocated from the store itself.
+     */
+    ParkingSpotAvailabilityIndex getAvailabilityIndex();
+}
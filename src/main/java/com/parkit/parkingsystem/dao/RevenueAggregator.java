@@ -0,0 +1,282 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Revenue and occupancy per parking type in rolling per-minute, per-hour and per-day buckets, updated as tickets
+ * are closed, so dashboards read a few hundred buckets instead of scanning the ticket table.
+ * <p>
+ * Each resolution keeps its latest buckets in a ring of primitive arrays indexed by bucket number, a bucket being
+ * reused once it falls out of the window: a day of minutes, 30 days of hours and 366 days. Buckets are aligned on UTC.
+ * A closed ticket adds its price to the bucket of its out-time, and its parked time to every bucket it overlaps,
+ * so the occupancy of a bucket grows as the vehicles parked during it leave.
+ * <p>
+ * Snapshots are big endian: the magic {@code PKRV} and a format version int, then for each resolution and parking
+ * type the number of buckets in use as an int, followed per bucket by its number as a long (epoch time divided by
+ * the bucket length), the revenue in cents as a long, the ticket count as an int and the parked time in millis as a long.
+ */
+public class RevenueAggregator {
+
+    public static final int SNAPSHOT_FORMAT_VERSION = 1;
+    private static final int SNAPSHOT_MAGIC = ('P' << 24) | ('K' << 16) | ('R' << 8) | 'V';
+    private static final int SNAPSHOT_BUCKET_SIZE = 8 + 8 + 4 + 8;
+
+    public enum Resolution {
+        MINUTE(60_000L, 24 * 60),
+        HOUR(3_600_000L, 30 * 24),
+        DAY(86_400_000L, 366);
+
+        private final long millis;
+        private final int buckets;
+
+        Resolution(long millis, int buckets) {
+            this.millis = millis;
+            this.buckets = buckets;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return the number of buckets kept, i.e. how far back this resolution goes.
+         */
+        public int getBuckets() {
+            return buckets;
+        }
+    }
+
+    /**
+     * Totals of one bucket, as read by {@link #getBuckets}.
+     */
+    public static class Bucket {
+        private final Instant start;
+        private final long revenueCents;
+        private final int ticketCount;
+        private final long parkedMillis;
+        private final long millis;
+
+        private Bucket(Instant start, long revenueCents, int ticketCount, long parkedMillis, long millis) {
+            this.start = start;
+            this.revenueCents = revenueCents;
+            this.ticketCount = ticketCount;
+            this.parkedMillis = parkedMillis;
+            this.millis = millis;
+        }
+
+        public Instant getStart() {
+            return start;
+        }
+
+        public double getRevenue() {
+            return revenueCents / 100.0;
+        }
+
+        /**
+         * @return the number of tickets closed in this bucket.
+         */
+        public int getTicketCount() {
+            return ticketCount;
+        }
+
+        /**
+         * @return the time vehicles of closed tickets spent parked during this bucket, summed over the vehicles.
+         */
+        public long getParkedMillis() {
+            return parkedMillis;
+        }
+
+        /**
+         * @return the average number of spots taken during this bucket by the vehicles that have left.
+         */
+        public double getAverageOccupancy() {
+            return parkedMillis / (double) millis;
+        }
+    }
+
+    // One ring per resolution and parking type; a slot holds bucket bucketNumbers[slot], or nothing if that is -1
+    private static class Ring {
+        private final long[] bucketNumbers;
+        private final long[] revenueCents;
+        private final int[] ticketCounts;
+        private final long[] parkedMillis;
+
+        private Ring(int buckets) {
+            bucketNumbers = new long[buckets];
+            Arrays.fill(bucketNumbers, -1);
+            revenueCents = new long[buckets];
+            ticketCounts = new int[buckets];
+            parkedMillis = new long[buckets];
+        }
+
+        /**
+         * @return the slot of the bucket, emptied if it held an older one, or -1 if the bucket is already out of the window.
+         */
+        private int slot(long bucketNumber) {
+            int slot = (int) (bucketNumber % bucketNumbers.length);
+            if (bucketNumbers[slot] != bucketNumber) {
+                if (bucketNumbers[slot] > bucketNumber) {
+                    return -1;
+                }
+                bucketNumbers[slot] = bucketNumber;
+                revenueCents[slot] = 0;
+                ticketCounts[slot] = 0;
+                parkedMillis[slot] = 0;
+            }
+            return slot;
+        }
+
+        private int size() {
+            int size = 0;
+            for (long bucketNumber : bucketNumbers) {
+                if (bucketNumber >= 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+
+    private final Ring[][] rings = new Ring[Resolution.values().length][ParkingType.values().length];
+
+    public RevenueAggregator() {
+        for (Resolution resolution : Resolution.values()) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                rings[resolution.ordinal()][parkingType.ordinal()] = new Ring(resolution.buckets);
+            }
+        }
+    }
+
+    /**
+     * Adds a closed ticket to the buckets of every resolution.
+     *
+     * @param inTime  the in-time of the ticket, in epoch millis.
+     * @param outTime the out-time of the ticket, in epoch millis.
+     */
+    public synchronized void add(ParkingType parkingType, long inTime, long outTime, double price) {
+        long cents = Math.round(price * 100);
+        for (Resolution resolution : Resolution.values()) {
+            Ring ring = rings[resolution.ordinal()][parkingType.ordinal()];
+            long outBucket = outTime / resolution.millis;
+            int slot = ring.slot(outBucket);
+            if (slot >= 0) {
+                ring.revenueCents[slot] += cents;
+                ring.ticketCounts[slot]++;
+            }
+            // Only the buckets still in the window, so a ticket left open for months costs one ring at most
+            long firstBucket = Math.max(inTime / resolution.millis, outBucket - resolution.buckets + 1);
+            for (long bucket = firstBucket; bucket <= outBucket; bucket++) {
+                long parked = Math.min(outTime, (bucket + 1) * resolution.millis) - Math.max(inTime, bucket * resolution.millis);
+                if (parked > 0) {
+                    slot = ring.slot(bucket);
+                    if (slot >= 0) {
+                        ring.parkedMillis[slot] += parked;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the buckets of a parking type from the one holding {@code from} to the one holding {@code to}, both included,
+     * with zeros for buckets without tickets. Buckets older than the window of the resolution before {@code to} are left out.
+     */
+    public synchronized List<Bucket> getBuckets(Resolution resolution, ParkingType parkingType, Instant from, Instant to) {
+        Ring ring = rings[resolution.ordinal()][parkingType.ordinal()];
+        long lastBucket = to.toEpochMilli() / resolution.millis;
+        long firstBucket = Math.max(from.toEpochMilli() / resolution.millis, lastBucket - resolution.buckets + 1);
+        List<Bucket> buckets = new ArrayList<>((int) Math.max(0, lastBucket - firstBucket + 1));
+        for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            Instant start = Instant.ofEpochMilli(bucket * resolution.millis);
+            int slot = (int) (bucket % resolution.buckets);
+            if (ring.bucketNumbers[slot] == bucket) {
+                buckets.add(new Bucket(start, ring.revenueCents[slot], ring.ticketCounts[slot], ring.parkedMillis[slot], resolution.millis));
+            } else {
+                buckets.add(new Bucket(start, 0, 0, 0, resolution.millis));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Writes a snapshot of every bucket in use to a file, replacing it atomically.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        ByteBuffer buffer;
+        synchronized (this) {
+            int size = 8;
+            for (Ring[] resolutionRings : rings) {
+                for (Ring ring : resolutionRings) {
+                    size += 4 + ring.size() * SNAPSHOT_BUCKET_SIZE;
+                }
+            }
+            buffer = ByteBuffer.allocate(size);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_FORMAT_VERSION);
+            for (Ring[] resolutionRings : rings) {
+                for (Ring ring : resolutionRings) {
+                    buffer.putInt(ring.size());
+                    for (int slot = 0; slot < ring.bucketNumbers.length; slot++) {
+                        if (ring.bucketNumbers[slot] >= 0) {
+                            buffer.putLong(ring.bucketNumbers[slot]).putLong(ring.revenueCents[slot])
+                                    .putInt(ring.ticketCounts[slot]).putLong(ring.parkedMillis[slot]);
+                        }
+                    }
+                }
+            }
+        }
+        buffer.flip();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the buckets of a snapshot written by {@link #writeSnapshot} to this aggregator.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot of this format.
+     */
+    public synchronized void readSnapshot(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_FORMAT_VERSION) {
+                throw new IOException("Not a revenue snapshot: " + file);
+            }
+            for (Ring[] resolutionRings : rings) {
+                for (Ring ring : resolutionRings) {
+                    int size = buffer.getInt();
+                    for (int i = 0; i < size; i++) {
+                        long bucketNumber = buffer.getLong();
+                        long revenueCents = buffer.getLong();
+                        int ticketCount = buffer.getInt();
+                        long parkedMillis = buffer.getLong();
+                        int slot = ring.slot(bucketNumber);
+                        if (slot >= 0) {
+                            ring.revenueCents[slot] += revenueCents;
+                            ring.ticketCounts[slot] += ticketCount;
+                            ring.parkedMillis[slot] += parkedMillis;
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated revenue snapshot: " + file, e);
+        }
+    }
+}
@@ -1,72 +1,357 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final Timer saveTicketTimer = MetricsRegistry.getDefault().timer("TicketDAO.saveTicket");
+    private static final Timer saveTicketsTimer = MetricsRegistry.getDefault().timer("TicketDAO.saveTickets");
+    private static final Timer getTicketTimer = MetricsRegistry.getDefault().timer("TicketDAO.getTicket");
+    private static final Timer getTicketByIdempotencyKeyTimer = MetricsRegistry.getDefault().timer("TicketDAO.getTicketByIdempotencyKey");
+    private static final Timer getTicketByIdTimer = MetricsRegistry.getDefault().timer("TicketDAO.getTicketById");
+    private static final Timer updateTicketTimer = MetricsRegistry.getDefault().timer("TicketDAO.updateTicket");
+    private static final Timer getTicketCountTimer = MetricsRegistry.getDefault().timer("TicketDAO.getTicketCount");
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    // Site of the database this DAO reads, set on the tickets it returns; null for a single-site setup
+    public String siteId;
+
+    // Mirror of the active_ticket table: open ticket id by vehicle registration number
+    private final ConcurrentMap<String, Integer> activeTicketIds = new ConcurrentHashMap<>();
+
+    // Ticket counts of recently seen plates, kept up to date by saveTicket; null to always query
+    public VisitCountCache visitCountCache;
+
+    // Type of each parking spot, so tickets are read from the ticket table alone; can be shared with ParkingSpotDAO
+    public ParkingSpotCache parkingSpotCache = new ParkingSpotCache();
+
+    // Queues new tickets for batched inserts by a background thread; null to insert each ticket right away
+    public TicketWriteBehind writeBehind;
+
+    // Revenue and occupancy per time bucket, fed by updateTicket once the closed ticket is committed; null to aggregate nothing
+    public RevenueAggregator revenueAggregator;
+
     public boolean saveTicket(Ticket ticket){
+        long start = saveTicketTimer.start();
+        try {
+            TicketWriteBehind ticketWriteBehind = writeBehind;
+            if (ticketWriteBehind != null) {
+                return ticketWriteBehind.save(ticket);
+            }
+            boolean result = false;
+            // The connection belongs to the unit of work, which hands it back to the pool on close
+            try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+                beginVisitCountSave(ticket.getVehicleRegNumber());
+                Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                //ps.setInt(1,ticket.getId());
+                ps.setInt(1,ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+                ps.setString(6, ticket.getIdempotencyKey());
+                if (ps.executeUpdate() != 1) {
+                    throw new SQLException("Ticket was not inserted");
+                }
+                ResultSet generatedKeys = ps.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    ticket.setId(generatedKeys.getInt(1));
+                }
+                dataBaseConfig.closeResultSet(generatedKeys);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Saved ticket {} for {} on parking slot {}", ticket.getId(), ticket.getVehicleRegNumber(), ticket.getParkingSpot().getId());
+                }
+                dataBaseConfig.closePreparedStatement(ps);
+                if (ticket.getOutTime() == null) {
+                    saveActiveTicket(con, ticket);
+                }
+                unitOfWork.commit();
+                result = true;
+            }catch (Exception ex){
+                logger.error("Error saving ticket",ex);
+            }
+            return result;
+        } finally {
+            saveTicketTimer.stop(start);
+        }
+    }
+
+    /**
+     * Tells the visit count cache, if any, that a ticket of the plate is being saved in the unit of work open on this
+     * thread, so no count is cached until the work ends, and has the ticket counted if the work commits.
+     */
+    private void beginVisitCountSave(String vehicleRegNumber) {
+        VisitCountCache cache = visitCountCache;
+        if (cache != null) {
+            cache.beginSave(vehicleRegNumber);
+            UnitOfWork.runAfterCommit(() -> cache.endSave(vehicleRegNumber, true));
+            UnitOfWork.runAfterRollback(() -> cache.endSave(vehicleRegNumber, false));
+        }
+    }
+
+    /**
+     * Inserts tickets with a single JDBC batch, in one transaction, and sets their generated ids.
+     *
+     * @param tickets the tickets to insert, in order.
+     * @return true if every ticket was inserted, false if none was.
+     */
+    public boolean saveTickets(List<Ticket> tickets){
+        long start = saveTicketsTimer.start();
+        // The connection belongs to the unit of work, which hands it back to the pool on close
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            for (Ticket ticket : tickets) {
+                beginVisitCountSave(ticket.getVehicleRegNumber());
+            }
+            Connection con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            for (Ticket ticket : tickets) {
+                ps.setInt(1,ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+                ps.setString(6, ticket.getIdempotencyKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ResultSet generatedKeys = ps.getGeneratedKeys();
+            for (Ticket ticket : tickets) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("Missing generated id for batched ticket");
+                }
+                ticket.setId(generatedKeys.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(generatedKeys);
+            dataBaseConfig.closePreparedStatement(ps);
+
+            // The latest open ticket of each plate becomes its active ticket
+            Map<String, Ticket> openTickets = new LinkedHashMap<>();
+            for (Ticket ticket : tickets) {
+                if (ticket.getOutTime() == null) {
+                    openTickets.put(ticket.getVehicleRegNumber(), ticket);
+                }
+            }
+            if (!openTickets.isEmpty()) {
+                saveActiveTickets(con, openTickets.values());
+            }
+            unitOfWork.commit();
+            return true;
+        }catch (Exception ex){
+            logger.error("Error saving batch of {} tickets", tickets.size(), ex);
+            return false;
+        }finally {
+            saveTicketsTimer.stop(start);
+        }
+    }
+
+    private void saveActiveTickets(Connection con, Collection<Ticket> tickets) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ACTIVE_TICKET);
+        for (Ticket ticket : tickets) {
+            ps.setString(1, ticket.getVehicleRegNumber());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.SAVE_ACTIVE_TICKET);
+        for (Ticket ticket : tickets) {
+            ps.setString(1, ticket.getVehicleRegNumber());
+            ps.setInt(2, ticket.getId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+        for (Ticket ticket : tickets) {
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            int ticketId = ticket.getId();
+            UnitOfWork.runAfterCommit(() -> activeTicketIds.put(vehicleRegNumber, ticketId));
+        }
+    }
+
+    private void saveActiveTicket(Connection con, Ticket ticket) throws SQLException {
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        int ticketId = ticket.getId();
+        PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ACTIVE_TICKET);
+        ps.setString(1, vehicleRegNumber);
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.SAVE_ACTIVE_TICKET);
+        ps.setString(1, vehicleRegNumber);
+        ps.setInt(2, ticketId);
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        UnitOfWork.runAfterCommit(() -> activeTicketIds.put(vehicleRegNumber, ticketId));
+    }
+
+    /**
+     * Returns the open ticket of a vehicle, found through the active tickets by registration number
+     * whatever the number of past visits. Falls back to the vehicle's latest ticket if none is open.
+     * The ticket's parking spot comes from the spot cache and is shared: replace it rather than modifying it.
+     *
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the ticket, or null if the vehicle has none.
+     */
+    public Ticket getTicket(String vehicleRegNumber) {
+        long start = getTicketTimer.start();
+        TicketWriteBehind ticketWriteBehind = writeBehind;
+        if (ticketWriteBehind != null) {
+            ticketWriteBehind.awaitPersisted(vehicleRegNumber);
+        }
         Connection con = null;
+        Ticket ticket = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            ticket = getActiveTicket(con, vehicleRegNumber);
+            if (ticket == null) {
+                PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                ps.setString(1,vehicleRegNumber);
+                ResultSet rs = ps.executeQuery();
+                if(rs.next()){
+                    ticket = readTicket(con, rs, vehicleRegNumber);
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error fetching ticket",ex);
         }finally {
+            getTicketTimer.stop(start);
             dataBaseConfig.closeConnection(con);
-            return false;
         }
+        return ticket;
     }
 
-    public Ticket getTicket(String vehicleRegNumber) {
-        Connection con = null;
+    private Ticket getActiveTicket(Connection con, String vehicleRegNumber) throws SQLException {
+        if (vehicleRegNumber == null) {
+            return null;
+        }
+        Integer ticketId = activeTicketIds.get(vehicleRegNumber);
+        if (ticketId == null) {
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_ACTIVE_TICKET_ID);
+            ps.setString(1, vehicleRegNumber);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                ticketId = rs.getInt(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            if (ticketId == null) {
+                return null;
+            }
+        }
         Ticket ticket = null;
+        PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_BY_ID);
+        ps.setInt(1, ticketId);
+        ResultSet rs = ps.executeQuery();
+        if (rs.next() && vehicleRegNumber.equals(rs.getString(7))) {
+            ticket = readTicket(con, rs, vehicleRegNumber);
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        if (ticket == null || ticket.getOutTime() != null) {
+            // Stale entry: the ticket was closed, removed or its id reused without going through this DAO
+            activeTicketIds.remove(vehicleRegNumber, ticketId);
+            return null;
+        }
+        activeTicketIds.put(vehicleRegNumber, ticketId);
+        return ticket;
+    }
+
+    private Ticket readTicket(Connection con, ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket ticket = new Ticket();
+        int parkingNumber = rs.getInt(1);
+        ParkingSpot parkingSpot = parkingSpotCache.get(con, parkingNumber);
+        if (parkingSpot == null) {
+            throw new SQLException("Ticket " + rs.getInt(2) + " refers to unknown parking spot " + parkingNumber);
+        }
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        ticket.setIdempotencyKey(rs.getString(6));
+        ticket.setSiteId(siteId);
+        return ticket;
+    }
+
+    /**
+     * Returns the ticket created for a visit, whether open or closed.
+     * Unlike the other lookups, database errors are thrown, so a replay can tell a missing ticket from an outage.
+     *
+     * @param idempotencyKey the key given to the ticket on entry.
+     * @return the ticket, or null if there is none with this key.
+     * @throws SQLException if the ticket cannot be read.
+     */
+    public Ticket getTicketByIdempotencyKey(String idempotencyKey) throws SQLException {
+        long start = getTicketByIdempotencyKeyTimer.start();
+        try {
+            return getTicketOrThrow(DBConstants.GET_TICKET_BY_IDEMPOTENCY_KEY, idempotencyKey);
+        } finally {
+            getTicketByIdempotencyKeyTimer.stop(start);
+        }
+    }
+
+    /**
+     * Returns a ticket by id, throwing database errors like {@link #getTicketByIdempotencyKey(String)}.
+     *
+     * @return the ticket, or null if there is none with this id.
+     * @throws SQLException if the ticket cannot be read.
+     */
+    public Ticket getTicketById(int ticketId) throws SQLException {
+        long start = getTicketByIdTimer.start();
+        try {
+            return getTicketOrThrow(DBConstants.GET_TICKET_BY_ID, ticketId);
+        } finally {
+            getTicketByIdTimer.stop(start);
+        }
+    }
+
+    private Ticket getTicketOrThrow(String query, Object parameter) throws SQLException {
+        Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
+            PreparedStatement ps = con.prepareStatement(query);
+            ps.setObject(1, parameter);
             ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+            Ticket ticket = null;
+            if (rs.next()) {
+                ticket = readTicket(con, rs, rs.getString(7));
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
-        }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
-        }finally {
-            dataBaseConfig.closeConnection(con);
             return ticket;
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
         }
     }
 
     public boolean updateTicket(Ticket ticket) {
+        long start = updateTicketTimer.start();
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
@@ -75,41 +360,99 @@ public class TicketDAO {
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
             ps.setInt(3,ticket.getId());
             ps.execute();
+            dataBaseConfig.closePreparedStatement(ps);
+            closeActiveTicket(con, ticket);
+            aggregateRevenue(ticket);
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
         }finally {
+            updateTicketTimer.stop(start);
             dataBaseConfig.closeConnection(con);
         }
         return false;
     }
 
+    private void closeActiveTicket(Connection con, Ticket ticket) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ACTIVE_TICKET_BY_ID);
+        ps.setInt(1, ticket.getId());
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        if (vehicleRegNumber != null) {
+            int ticketId = ticket.getId();
+            UnitOfWork.runAfterCommit(() -> activeTicketIds.remove(vehicleRegNumber, ticketId));
+        }
+    }
+
+    private void aggregateRevenue(Ticket ticket) {
+        RevenueAggregator aggregator = revenueAggregator;
+        if (aggregator == null || ticket.getParkingSpot() == null || ticket.getParkingSpot().getParkingType() == null) {
+            return;
+        }
+        ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+        long inTime = ticket.getInTime().getTime();
+        long outTime = ticket.getOutTime().getTime();
+        double price = ticket.getPrice();
+        UnitOfWork.runAfterCommit(() -> aggregator.add(parkingType, inTime, outTime, price));
+    }
+
+    @Override
+    public String getSiteId() {
+        return siteId;
+    }
+
     // getNbTicket() count the number of tickets for a vehicle registration number
     // if the number of tickets is greater than 2, the method returns true
     // otherwise, it returns false
     public boolean getNbTicket (String vehicleRegistration){
-        int count = 0;
-        Connection con = null;
-        String sql = "SELECT * FROM ticket WHERE VEHICLE_REG_NUMBER = ?";
+        return getTicketCount(vehicleRegistration) > 2;
+    }
+
+    /**
+     * Counts the tickets of a vehicle, from the visit count cache when the plate is cached.
+     *
+     * @param vehicleRegNumber the vehicle registration number.
+     * @return the number of tickets, or 0 if they could not be counted.
+     */
+    public int getTicketCount(String vehicleRegNumber){
+        long start = getTicketCountTimer.start();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setString(1, vehicleRegistration);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()){
-                count++;
+            TicketWriteBehind ticketWriteBehind = writeBehind;
+            if (ticketWriteBehind != null) {
+                ticketWriteBehind.awaitPersisted(vehicleRegNumber);
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
-        } catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            VisitCountCache cache = visitCountCache;
+            if (cache != null) {
+                int cached = cache.get(vehicleRegNumber);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+            long saveStamp = cache != null ? cache.getSaveStamp(vehicleRegNumber) : 0;
+            int count = 0;
+            Connection con = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_TICKETS);
+                ps.setString(1, vehicleRegNumber);
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()){
+                    count = rs.getInt(1);
+                    if (cache != null) {
+                        cache.put(vehicleRegNumber, count, saveStamp);
+                    }
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            } catch (Exception ex){
+                logger.error("Error counting tickets",ex);
+            } finally {
+                dataBaseConfig.closeConnection(con);
+            }
+            return count;
         } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-        if (count > 2){
-            return true;
-        } else {
-            return false;
+            getTicketCountTimer.stop(start);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Streams the ticket table to a channel, for the nightly finance export.
+ * Rows are read through a forward-only cursor and encoded into a reusable direct buffer that is written
+ * to the channel whenever it fills, so memory use does not depend on the number of tickets.
+ *
+ * <p>CSV has a header line and one line per ticket: ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE (with two decimals),
+ * IN_TIME and OUT_TIME (as {@code yyyy-MM-dd HH:mm:ss}, OUT_TIME empty while the vehicle is parked).
+ *
+ * <p>BINARY is big endian: the magic {@code PKTX} and a format version int, then per ticket a 1 byte,
+ * ID int, PARKING_NUMBER int, VEHICLE_REG_NUMBER as an unsigned short length and UTF-8 bytes,
+ * PRICE in cents long, IN_TIME and OUT_TIME in epoch millis longs (OUT_TIME -1 while parked),
+ * and finally a 0 byte followed by the number of tickets as a long.
+ */
+public class TicketExporter {
+
+    private static final Logger logger = LogManager.getLogger("TicketExporter");
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    public static final int BINARY_FORMAT_VERSION = 1;
+    private static final byte[] BINARY_MAGIC = {'P', 'K', 'T', 'X'};
+    private static final byte[] CSV_HEADER = "ID,PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Encoded size of a ticket besides its registration number, with room to spare
+    private static final int MAX_ROW_OVERHEAD = 128;
+
+    public enum Format { CSV, BINARY }
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    private final int bufferSize;
+    private final int fetchSize;
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public TicketExporter() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_FETCH_SIZE);
+    }
+
+    public TicketExporter(int bufferSize, int fetchSize) {
+        if (bufferSize < CSV_HEADER.length + MAX_ROW_OVERHEAD) {
+            throw new IllegalArgumentException("Export buffer too small: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.fetchSize = fetchSize;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(this.bufferSize));
+    }
+
+    /**
+     * Writes every ticket, in ID order, to the channel. The channel is left open.
+     *
+     * @return the number of tickets and bytes written and the time taken.
+     * @throws SQLException if the tickets cannot be read.
+     * @throws IOException if the channel cannot be written; part of the export may have been written.
+     */
+    public ExportResult export(WritableByteChannel channel, Format format) throws SQLException, IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        long rows = 0;
+        long bytes = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(getFetchSize(con));
+            rs = ps.executeQuery();
+            if (format == Format.CSV) {
+                buffer.put(CSV_HEADER);
+            } else {
+                buffer.put(BINARY_MAGIC).putInt(BINARY_FORMAT_VERSION);
+            }
+            while (rs.next()) {
+                byte[] vehicleRegNumber = rs.getString(3).getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < vehicleRegNumber.length + MAX_ROW_OVERHEAD) {
+                    bytes += flush(buffer, channel);
+                    if (buffer.remaining() < vehicleRegNumber.length + MAX_ROW_OVERHEAD) {
+                        throw new IOException("Ticket " + rs.getInt(1) + " does not fit in the export buffer");
+                    }
+                }
+                long priceInCents = Math.round(rs.getDouble(4) * 100);
+                Timestamp inTime = rs.getTimestamp(5);
+                Timestamp outTime = rs.getTimestamp(6);
+                if (format == Format.CSV) {
+                    putLong(buffer, rs.getInt(1));
+                    buffer.put((byte) ',');
+                    putLong(buffer, rs.getInt(2));
+                    buffer.put((byte) ',');
+                    putCsvString(buffer, vehicleRegNumber);
+                    buffer.put((byte) ',');
+                    putCents(buffer, priceInCents);
+                    buffer.put((byte) ',');
+                    putDateTime(buffer, inTime);
+                    buffer.put((byte) ',');
+                    if (outTime != null) {
+                        putDateTime(buffer, outTime);
+                    }
+                    buffer.put((byte) '\n');
+                } else {
+                    buffer.put((byte) 1)
+                            .putInt(rs.getInt(1))
+                            .putInt(rs.getInt(2))
+                            .putShort((short) vehicleRegNumber.length)
+                            .put(vehicleRegNumber)
+                            .putLong(priceInCents)
+                            .putLong(inTime.getTime())
+                            .putLong(outTime == null ? -1 : outTime.getTime());
+                }
+                rows++;
+            }
+            if (format == Format.BINARY) {
+                if (buffer.remaining() < 9) {
+                    bytes += flush(buffer, channel);
+                }
+                buffer.put((byte) 0).putLong(rows);
+            }
+            bytes += flush(buffer, channel);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found", e);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        ExportResult result = new ExportResult(rows, bytes, System.nanoTime() - start);
+        logger.info("Exported {} tickets as {} ({} bytes) in {} ms, {} rows/s",
+                rows, format, bytes, result.getElapsedMillis(), Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+
+    private int getFetchSize(Connection con) throws SQLException {
+        // MySQL reads the whole result into memory unless told to stream, either row by row or with server side cursors
+        String url = con.getMetaData().getURL();
+        if (url != null && url.startsWith("jdbc:mysql:") && !url.contains("useCursorFetch=true")) {
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+
+    private static long flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        long written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    private static void putCsvString(ByteBuffer buffer, byte[] value) {
+        boolean quote = false;
+        for (byte b : value) {
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            buffer.put(value);
+            return;
+        }
+        buffer.put((byte) '"');
+        for (byte b : value) {
+            if (b == '"') {
+                buffer.put((byte) '"');
+            }
+            buffer.put(b);
+        }
+        buffer.put((byte) '"');
+    }
+
+    private static void putCents(ByteBuffer buffer, long cents) {
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        putLong(buffer, cents / 100);
+        buffer.put((byte) '.');
+        putDigits(buffer, cents % 100, 2);
+    }
+
+    private static void putDateTime(ByteBuffer buffer, Timestamp timestamp) {
+        LocalDateTime dateTime = timestamp.toLocalDateTime();
+        putDigits(buffer, dateTime.getYear(), 4);
+        buffer.put((byte) '-');
+        putDigits(buffer, dateTime.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(buffer, dateTime.getDayOfMonth(), 2);
+        buffer.put((byte) ' ');
+        putDigits(buffer, dateTime.getHour(), 2);
+        buffer.put((byte) ':');
+        putDigits(buffer, dateTime.getMinute(), 2);
+        buffer.put((byte) ':');
+        putDigits(buffer, dateTime.getSecond(), 2);
+    }
+
+    private static void putLong(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        putDigits(buffer, value, digits);
+    }
+
+    // Writes the value zero padded to the given number of digits
+    private static void putDigits(ByteBuffer buffer, long value, int digits) {
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= end - digits; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Outcome of an export.
+     */
+    public static class ExportResult {
+
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        public ExportResult(long rows, long bytes, long elapsedNanos) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1000000;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.JournalRecordUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of the tickets accepted by the write-behind mode but possibly not yet in the database,
+ * so they can be replayed after a crash. Each record is framed by {@link JournalRecordUtil}: its length, the ticket
+ * with its sequence number, and a CRC32; reading stops at the first incomplete or corrupt record, which is where
+ * a crash cut the file.
+ * A ticket can also be journaled again under a later sequence number, replacing its earlier record, or cancelled.
+ */
+public class TicketJournal implements Closeable {
+
+    private static final int MAX_RECORD_SIZE = 4096;
+
+    private static final byte TICKET_RECORD = 0;
+    private static final byte CANCEL_RECORD = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    // Held while forcing, so the appends go on meanwhile and the callers waiting share the next force
+    private final Object forceLock = new Object();
+    private volatile long appendedSequence;
+    private long forcedSequence;
+
+    public TicketJournal(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends a ticket to the journal.
+     *
+     * @param force whether to wait for the record to reach the disk.
+     */
+    public void append(long sequence, Ticket ticket, boolean force) throws IOException {
+        append(sequence, 0, ticket, force);
+    }
+
+    /**
+     * Appends a ticket to the journal, replacing the record it was journaled with under an earlier sequence number.
+     *
+     * @param replacedSequence the earlier sequence number, or 0 if the ticket was not journaled yet.
+     * @param force whether to wait for the record to reach the disk.
+     */
+    public synchronized void append(long sequence, long replacedSequence, Ticket ticket, boolean force) throws IOException {
+        JournalRecordUtil.beginRecord(buffer);
+        buffer.put(TICKET_RECORD);
+        buffer.putLong(sequence);
+        buffer.putLong(replacedSequence);
+        buffer.putInt(ticket.getParkingSpot().getId());
+        ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+        buffer.put((byte) (parkingType == null ? -1 : parkingType.ordinal()));
+        JournalRecordUtil.putString(buffer, ticket.getVehicleRegNumber());
+        JournalRecordUtil.putString(buffer, ticket.getIdempotencyKey());
+        buffer.putDouble(ticket.getPrice());
+        buffer.putLong(ticket.getInTime().getTime());
+        buffer.putLong(ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime());
+        writeRecord();
+        appendedSequence = Math.max(appendedSequence, sequence);
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Records that the ticket journaled under the given sequence number must not be replayed, and waits for the
+     * record to reach the disk.
+     */
+    public synchronized void appendCancel(long sequence) throws IOException {
+        JournalRecordUtil.beginRecord(buffer);
+        buffer.put(CANCEL_RECORD);
+        buffer.putLong(sequence);
+        writeRecord();
+        channel.force(false);
+    }
+
+    private void writeRecord() throws IOException {
+        JournalRecordUtil.endRecord(buffer, crc);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Waits for the records appended up to the given sequence number to reach the disk. A single force covers
+     * every record appended before it started, so callers arriving while one is under way share the next one.
+     */
+    public void force(long sequence) throws IOException {
+        synchronized (forceLock) {
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            long appended = appendedSequence;
+            channel.force(false);
+            forcedSequence = appended;
+        }
+    }
+
+    /**
+     * Reads every complete record and returns the tickets neither cancelled nor replaced, in the order they were
+     * appended.
+     */
+    public synchronized List<Entry> readAll() throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        ByteBuffer file = ByteBuffer.allocate((int) channel.size());
+        long position = 0;
+        while (file.hasRemaining()) {
+            int read = channel.read(file, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        file.flip();
+        ByteBuffer record;
+        while ((record = JournalRecordUtil.readRecord(file, MAX_RECORD_SIZE)) != null) {
+            byte type = record.get();
+            long sequence = record.getLong();
+            if (type == CANCEL_RECORD) {
+                entries.remove(sequence);
+                continue;
+            }
+            entries.remove(record.getLong());
+            Ticket ticket = new Ticket();
+            int parkingNumber = record.getInt();
+            byte typeOrdinal = record.get();
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, typeOrdinal < 0 ? null : ParkingType.values()[typeOrdinal], false));
+            ticket.setVehicleRegNumber(JournalRecordUtil.getString(record));
+            ticket.setIdempotencyKey(JournalRecordUtil.getString(record));
+            ticket.setPrice(record.getDouble());
+            ticket.setInTime(new Date(record.getLong()));
+            long outTime = record.getLong();
+            ticket.setOutTime(outTime < 0 ? null : new Date(outTime));
+            entries.put(sequence, new Entry(sequence, ticket));
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Empties the journal, once every ticket in it is known to be in the database.
+     */
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A journaled ticket and its sequence number.
+     */
+    public static class Entry {
+
+        private final long sequence;
+        private final Ticket ticket;
+
+        public Entry(long sequence, Ticket ticket) {
+            this.sequence = sequence;
+            this.ticket = ticket;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Ticket getTicket() {
+            return ticket;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Where tickets are kept, as used by the parking service.
+ * {@link TicketDAO} keeps them in the database, {@link InMemoryTicketStore} in memory.
+ * Changes made inside a {@link com.parkit.parkingsystem.config.UnitOfWork} are undone if it is rolled back.
+ */
+public interface TicketStore {
+
+    /**
+     * Saves a new ticket and sets its id.
+     *
+     * @return false if the ticket could not be saved.
+     */
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * Returns the open ticket of a vehicle, or its latest ticket if none is open. The ticket is a copy:
+     * changing it changes nothing in the store until it is passed to {@link #updateTicket(Ticket)}.
+     *
+     * @return the ticket, or null if the vehicle has none or an error occurred.
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * Records the price and out time of a ticket.
+     *
+     * @return true if the ticket was updated.
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * @return the number of tickets of a vehicle, or 0 if they could not be counted.
+     */
+    int getTicketCount(String vehicleRegNumber);
+
+    /**
+     * @return true if the vehicle has more than two tickets, i.e. is a frequent user.
+     */
+    boolean getNbTicket(String vehicleRegNumber);
+
+    /**
+     * @return the site whose tickets the store keeps, or null for a single-site setup.
+     */
+    default String getSiteId() {
+        return null;
+    }
+}
@@ -0,0 +1,548 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode of {@link TicketDAO#saveTicket(Ticket)}: new tickets are put in a bounded ring buffer and
+ * a background thread inserts them in batches, one transaction per batch, when the batch is full or the oldest
+ * ticket has waited for the flush interval.
+ *
+ * <p>With {@link Durability#ACK_AFTER_ENQUEUE} saveTicket returns once the ticket is queued and, if a journal is
+ * configured, forced to the journal file, saves arriving together sharing a force; with {@link Durability#ACK_AFTER_FLUSH}
+ * it waits for the batch to commit.
+ * Each batch also records the sequence number of its last ticket in the write_behind_checkpoint table, in the
+ * same transaction, so {@link #start()} replays exactly the journaled tickets that did not reach the database.
+ *
+ * <p>Inside a unit of work, such as an entry claiming its spot, the ticket is queued and journaled right away, so a full
+ * buffer fails the work instead of losing the ticket after the claim committed. If the work rolls back, the ticket is
+ * dropped and a cancel record journaled so a restart does not replay it. The flusher leaves a ticket whose work is
+ * still open out of the batch, journaling it again under a new sequence number so the batch's checkpoint can pass it,
+ * and writes it with a later batch once the work commits.
+ * With ACK_AFTER_FLUSH it is inserted in the unit of work itself instead, as a batch written by another transaction
+ * would wait on the spot the work holds locked.
+ *
+ * <p>getTicket waits for the pending tickets of a plate to be flushed, so an exit always finds its ticket.
+ * When the buffer stays full for the enqueue timeout, the ticket is saved directly instead.
+ */
+public class TicketWriteBehind implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehind");
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 20;
+
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 1000;
+    private static final long ACK_TIMEOUT_MILLIS = 30000;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long UNIT_OF_WORK_WAIT_MILLIS = 20;
+
+    public enum Durability { ACK_AFTER_ENQUEUE, ACK_AFTER_FLUSH }
+
+    private final TicketDAO ticketDAO;
+    private final Durability durability;
+    private final TicketJournal journal;
+    private final BlockingQueue<QueuedTicket> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    // Number of queued or in-flight tickets per plate
+    private final ConcurrentMap<String, Integer> pendingPlates = new ConcurrentHashMap<>();
+
+    private final Object enqueueLock = new Object();
+    private long lastSequence;
+
+    private final Object flushLock = new Object();
+    private long flushedSequence;
+
+    private final Thread flusher;
+    private volatile boolean running;
+    private volatile boolean flushRequested;
+
+    public TicketWriteBehind(TicketDAO ticketDAO, Durability durability, Path journalPath) throws IOException {
+        this(ticketDAO, durability, journalPath, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param journalPath the crash-recovery journal, or null to keep queued tickets in memory only.
+     */
+    public TicketWriteBehind(TicketDAO ticketDAO, Durability durability, Path journalPath,
+                             int capacity, int batchSize, long flushIntervalMillis) throws IOException {
+        this.ticketDAO = ticketDAO;
+        this.durability = durability;
+        this.journal = journalPath == null ? null : new TicketJournal(journalPath);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.flusher = new Thread(this::runFlusher, "ticket-write-behind");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Replays the journaled tickets missing from the database, then starts the background flusher.
+     *
+     * @throws SQLException if the replayed tickets cannot be saved; they stay in the journal.
+     */
+    public void start() throws SQLException, IOException {
+        if (journal != null) {
+            long checkpoint = getCheckpoint();
+            List<QueuedTicket> missing = new ArrayList<>();
+            long maxSequence = checkpoint;
+            // Cancelled tickets and those journaled again under a later sequence number are already left out
+            for (TicketJournal.Entry entry : journal.readAll()) {
+                maxSequence = Math.max(maxSequence, entry.getSequence());
+                if (entry.getSequence() > checkpoint) {
+                    missing.add(new QueuedTicket(entry.getSequence(), entry.getTicket(), false));
+                }
+            }
+            if (!missing.isEmpty()) {
+                logger.info("Replaying {} journaled tickets", missing.size());
+                for (int from = 0; from < missing.size(); from += batchSize) {
+                    if (!writeBatch(missing.subList(from, Math.min(from + batchSize, missing.size())))) {
+                        throw new SQLException("Unable to replay the ticket journal " + journal.getPath());
+                    }
+                }
+            }
+            // Also drops any record cut short by a crash, so new records are appended to a clean file
+            journal.truncate();
+            lastSequence = maxSequence;
+            flushedSequence = maxSequence;
+        }
+        running = true;
+        flusher.start();
+    }
+
+    /**
+     * Queues a ticket for saving. Inside a unit of work the ticket is only written once the work commits.
+     *
+     * @return true once the ticket is queued (ACK_AFTER_ENQUEUE) or saved (ACK_AFTER_FLUSH), false if it could
+     * neither be queued nor saved directly.
+     */
+    public boolean save(Ticket ticket) {
+        if (!running) {
+            throw new IllegalStateException("Write-behind is not running");
+        }
+        boolean inUnitOfWork = UnitOfWork.isActive();
+        if (inUnitOfWork && durability == Durability.ACK_AFTER_FLUSH) {
+            return ticketDAO.saveTickets(Collections.singletonList(ticket));
+        }
+        return enqueue(ticket, inUnitOfWork);
+    }
+
+    private boolean enqueue(Ticket ticket, boolean inUnitOfWork) {
+        long sequence = 0;
+        QueuedTicket queuedTicket = null;
+        boolean queued = false;
+        long deadline = System.currentTimeMillis() + ENQUEUE_TIMEOUT_MILLIS;
+        pendingPlates.merge(ticket.getVehicleRegNumber(), 1, Integer::sum);
+        while (!queued) {
+            synchronized (enqueueLock) {
+                sequence = lastSequence + 1;
+                queuedTicket = new QueuedTicket(sequence, ticket, inUnitOfWork);
+                queued = queue.offer(queuedTicket);
+                if (queued) {
+                    lastSequence = sequence;
+                    // Written under the lock, so the flusher cannot truncate the journal before the record is in
+                    if (journal != null) {
+                        try {
+                            journal.append(sequence, ticket, false);
+                        } catch (IOException e) {
+                            logger.error("Error journaling ticket, it will only be saved if the application keeps running", e);
+                        }
+                    }
+                }
+            }
+            if (!queued) {
+                if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+                try {
+                    // Buffer full: wait for the flusher without holding the lock it needs
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (!queued) {
+            releasePlate(ticket.getVehicleRegNumber());
+            logger.warn("Write-behind buffer full, saving ticket directly");
+            return ticketDAO.saveTickets(Collections.singletonList(ticket));
+        }
+        if (inUnitOfWork) {
+            QueuedTicket heldTicket = queuedTicket;
+            UnitOfWork.runAfterCommit(heldTicket::release);
+            UnitOfWork.runAfterRollback(() -> cancel(heldTicket));
+        }
+        // Forced outside the lock, so the saves queued during a force share the next one
+        if (journal != null && durability == Durability.ACK_AFTER_ENQUEUE) {
+            try {
+                journal.force(sequence);
+            } catch (IOException e) {
+                logger.error("Error forcing ticket journal, the ticket will only be saved if the application keeps running", e);
+            }
+        }
+        if (durability == Durability.ACK_AFTER_FLUSH) {
+            // Not flushed right away, so that tickets arriving together still share a batch
+            return awaitFlushed(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * Drops a ticket whose unit of work rolled back, journaling the cancellation so a restart does not replay it.
+     */
+    private void cancel(QueuedTicket queuedTicket) {
+        synchronized (queuedTicket) {
+            queuedTicket.cancelled = true;
+            if (journal != null) {
+                try {
+                    journal.appendCancel(queuedTicket.sequence);
+                } catch (IOException e) {
+                    logger.error("Error journaling cancelled ticket, it will be replayed if the application restarts before it is dropped", e);
+                }
+            }
+            queuedTicket.unitOfWorkDone.countDown();
+        }
+    }
+
+    /**
+     * Waits until the pending tickets of the plate are in the database, waiting at most 30 seconds.
+     * Other plates' tickets, including those of units of work still open, are not waited for.
+     */
+    public void awaitPersisted(String vehicleRegNumber) {
+        if (vehicleRegNumber != null && pendingPlates.containsKey(vehicleRegNumber)) {
+            flushRequested = true;
+            long deadline = System.currentTimeMillis() + ACK_TIMEOUT_MILLIS;
+            synchronized (flushLock) {
+                while (pendingPlates.containsKey(vehicleRegNumber)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        logger.error("Timed out waiting for the tickets of a vehicle to be saved");
+                        return;
+                    }
+                    try {
+                        flushLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until every ticket queued so far is in the database, including those of units of work still open.
+     *
+     * @return false if that did not happen within 30 seconds.
+     */
+    public boolean flush() {
+        long sequence;
+        synchronized (enqueueLock) {
+            sequence = lastSequence;
+        }
+        flushRequested = true;
+        return awaitFlushed(sequence);
+    }
+
+    private boolean awaitFlushed(long sequence) {
+        long deadline = System.currentTimeMillis() + ACK_TIMEOUT_MILLIS;
+        synchronized (flushLock) {
+            while (flushedSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.error("Timed out waiting for queued tickets to be saved");
+                    return false;
+                }
+                try {
+                    flushLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void runFlusher() {
+        List<QueuedTicket> batch = new ArrayList<>(batchSize);
+        // Tickets of units of work that were still open when their batch was written
+        List<QueuedTicket> deferred = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedTicket first = deferred.isEmpty() ? queue.poll(100, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null && deferred.isEmpty()) {
+                    continue;
+                }
+                batch.addAll(deferred);
+                deferred.clear();
+                if (first != null) {
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || flushRequested || !running || remaining <= 0) {
+                        break;
+                    }
+                    QueuedTicket next = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                flushRequested = false;
+                deferUndecided(batch, deferred);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                while (!writeBatch(batch)) {
+                    if (!running) {
+                        logger.error("Giving up on {} tickets, they will be replayed from the journal on restart", batch.size());
+                        return;
+                    }
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (!deferred.isEmpty()) {
+            logger.warn("Leaving {} tickets of unfinished units of work in the journal", deferred.size());
+        }
+    }
+
+    /**
+     * Waits briefly for the units of work of the batch's tickets, then moves the tickets whose work is still open
+     * to the deferred list. If other tickets are left to write, the deferred ones are journaled again under new
+     * sequence numbers, above the batch's checkpoint, so a crash after the batch still replays them.
+     */
+    private void deferUndecided(List<QueuedTicket> batch, List<QueuedTicket> deferred) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(UNIT_OF_WORK_WAIT_MILLIS);
+        for (Iterator<QueuedTicket> it = batch.iterator(); it.hasNext(); ) {
+            QueuedTicket queuedTicket = it.next();
+            if (!queuedTicket.awaitUnitOfWork(deadline - System.nanoTime())) {
+                it.remove();
+                deferred.add(queuedTicket);
+            }
+        }
+        if (deferred.isEmpty() || batch.isEmpty()) {
+            return;
+        }
+        long sequence = 0;
+        for (Iterator<QueuedTicket> it = deferred.iterator(); it.hasNext(); ) {
+            QueuedTicket queuedTicket = it.next();
+            synchronized (queuedTicket) {
+                if (queuedTicket.isDecided()) {
+                    // Decided meanwhile, so it can go with this batch after all
+                    it.remove();
+                    batch.add(queuedTicket);
+                    continue;
+                }
+                synchronized (enqueueLock) {
+                    sequence = ++lastSequence;
+                    if (journal != null) {
+                        try {
+                            journal.append(sequence, queuedTicket.sequence, queuedTicket.getTicket(), false);
+                        } catch (IOException e) {
+                            logger.error("Error journaling deferred ticket, it will only be saved if the application keeps running", e);
+                        }
+                    }
+                }
+                queuedTicket.sequence = sequence;
+            }
+        }
+        if (journal != null && sequence > 0) {
+            try {
+                journal.force(sequence);
+            } catch (IOException e) {
+                logger.error("Error forcing ticket journal, deferred tickets will only be saved if the application keeps running", e);
+            }
+        }
+    }
+
+    private boolean writeBatch(List<QueuedTicket> batch) {
+        List<Ticket> tickets = new ArrayList<>(batch.size());
+        for (QueuedTicket queuedTicket : batch) {
+            if (!queuedTicket.cancelled) {
+                tickets.add(queuedTicket.getTicket());
+            }
+        }
+        long sequence = 0;
+        for (QueuedTicket queuedTicket : batch) {
+            sequence = Math.max(sequence, queuedTicket.getSequence());
+        }
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            if (!tickets.isEmpty() && !ticketDAO.saveTickets(tickets)) {
+                return false;
+            }
+            if (journal != null) {
+                saveCheckpoint(sequence);
+            }
+            unitOfWork.commit();
+        } catch (Exception ex) {
+            logger.error("Error saving batch of {} tickets", batch.size(), ex);
+            return false;
+        }
+        for (QueuedTicket queuedTicket : batch) {
+            releasePlate(queuedTicket.getTicket().getVehicleRegNumber());
+        }
+        // Truncated before the acknowledgement, so a caller told its ticket is saved never finds it journaled
+        if (journal != null) {
+            synchronized (enqueueLock) {
+                if (queue.isEmpty() && lastSequence <= sequence) {
+                    try {
+                        journal.truncate();
+                    } catch (IOException e) {
+                        logger.error("Error truncating ticket journal", e);
+                    }
+                }
+            }
+        }
+        synchronized (flushLock) {
+            flushedSequence = Math.max(flushedSequence, sequence);
+            flushLock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * A queued ticket. One saved in a unit of work is held back from the flusher until the work commits or rolls back.
+     */
+    private static class QueuedTicket {
+
+        // Guarded by the ticket itself; moved when the flusher defers the ticket
+        private long sequence;
+        private final Ticket ticket;
+        private final CountDownLatch unitOfWorkDone;
+        private volatile boolean cancelled;
+
+        private QueuedTicket(long sequence, Ticket ticket, boolean inUnitOfWork) {
+            this.sequence = sequence;
+            this.ticket = ticket;
+            this.unitOfWorkDone = inUnitOfWork ? new CountDownLatch(1) : null;
+        }
+
+        private synchronized long getSequence() {
+            return sequence;
+        }
+
+        private Ticket getTicket() {
+            return ticket;
+        }
+
+        private void release() {
+            unitOfWorkDone.countDown();
+        }
+
+        private boolean isDecided() {
+            return unitOfWorkDone == null || unitOfWorkDone.getCount() == 0;
+        }
+
+        private boolean awaitUnitOfWork(long timeoutNanos) throws InterruptedException {
+            return unitOfWorkDone == null || unitOfWorkDone.await(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void releasePlate(String vehicleRegNumber) {
+        pendingPlates.computeIfPresent(vehicleRegNumber, (plate, count) -> count == 1 ? null : count - 1);
+    }
+
+    private String getJournalName() {
+        return journal.getPath().getFileName().toString();
+    }
+
+    private long getCheckpoint() throws SQLException {
+        DataBaseConfig dataBaseConfig = ticketDAO.dataBaseConfig;
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_WRITE_BEHIND_CHECKPOINT);
+            ps.setString(1, getJournalName());
+            ResultSet rs = ps.executeQuery();
+            long checkpoint = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return checkpoint;
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("JDBC driver not found", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void saveCheckpoint(long sequence) throws SQLException, ClassNotFoundException {
+        DataBaseConfig dataBaseConfig = ticketDAO.dataBaseConfig;
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_WRITE_BEHIND_CHECKPOINT);
+            ps.setLong(1, sequence);
+            ps.setString(2, getJournalName());
+            int updated = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            if (updated == 0) {
+                ps = con.prepareStatement(DBConstants.SAVE_WRITE_BEHIND_CHECKPOINT);
+                ps.setString(1, getJournalName());
+                ps.setLong(2, sequence);
+                ps.executeUpdate();
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Saves the queued tickets and stops the flusher. Tickets that cannot be saved stay in the journal.
+     */
+    @Override
+    public void close() {
+        if (running) {
+            flushRequested = true;
+            running = false;
+            try {
+                flusher.join(ACK_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.error("Error closing ticket journal", e);
+            }
+        }
+    }
+}
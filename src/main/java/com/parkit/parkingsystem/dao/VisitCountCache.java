@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Number of tickets per vehicle registration number, so the loyalty check of frequent users needs no query.
+ * A plate's count is cached the first time it is read from the database and then incremented as each new ticket commits.
+ * Once {@code maxEntries} plates are cached new plates are no longer added, their counts are simply queried.
+ * <p>
+ * A count read while another ticket of the plate is being saved may or may not include that ticket, depending on
+ * whether it was read before or after the save committed, so it cannot be cached: it would be one short if the
+ * increment had nothing to update yet, or counted twice otherwise. Saves are therefore announced by
+ * {@link #beginSave} and {@link #endSave} on a stripe of plates, and a count is only cached if no save of its stripe
+ * began since before it was read or is still in progress.
+ */
+public class VisitCountCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    private static final int SAVE_STAMP_STRIPES = 64;
+
+    private final ConcurrentMap<String, AtomicInteger> visitCounts = new ConcurrentHashMap<>();
+    // Moved whenever a save of the stripe begins or ends
+    private final AtomicLongArray saveStamps = new AtomicLongArray(SAVE_STAMP_STRIPES);
+    private final AtomicIntegerArray savesInProgress = new AtomicIntegerArray(SAVE_STAMP_STRIPES);
+    private final int maxEntries;
+
+    public VisitCountCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public VisitCountCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the cached number of tickets for the plate, or -1 if it is not cached.
+     */
+    public int get(String vehicleRegNumber) {
+        AtomicInteger count = visitCounts.get(vehicleRegNumber);
+        return count == null ? -1 : count.get();
+    }
+
+    /**
+     * @return the save stamp of the plate, to be read before its tickets are counted and handed to {@link #put}.
+     */
+    public long getSaveStamp(String vehicleRegNumber) {
+        return saveStamps.get(stripe(vehicleRegNumber));
+    }
+
+    /**
+     * Caches the number of tickets read from the database for a plate, unless it is already cached, the cache is full
+     * or a save of the plate's stripe began since {@code saveStamp} was read or is still in progress.
+     */
+    public void put(String vehicleRegNumber, int count, long saveStamp) {
+        int stripe = stripe(vehicleRegNumber);
+        if (visitCounts.size() >= maxEntries || !isSettled(stripe, saveStamp)) {
+            return;
+        }
+        AtomicInteger cached = new AtomicInteger(count);
+        if (visitCounts.putIfAbsent(vehicleRegNumber, cached) == null && !isSettled(stripe, saveStamp)) {
+            // A save began while the entry was added, so the count may already include its ticket
+            visitCounts.remove(vehicleRegNumber, cached);
+        }
+    }
+
+    private boolean isSettled(int stripe, long saveStamp) {
+        return savesInProgress.get(stripe) == 0 && saveStamps.get(stripe) == saveStamp;
+    }
+
+    /**
+     * Announces a ticket of the plate about to be inserted. Must be followed by {@link #endSave} once the
+     * transaction inserting it commits or rolls back.
+     */
+    public void beginSave(String vehicleRegNumber) {
+        int stripe = stripe(vehicleRegNumber);
+        savesInProgress.incrementAndGet(stripe);
+        saveStamps.incrementAndGet(stripe);
+    }
+
+    /**
+     * Ends a save announced by {@link #beginSave}, counting its ticket if it committed and the plate's count is cached.
+     */
+    public void endSave(String vehicleRegNumber, boolean committed) {
+        int stripe = stripe(vehicleRegNumber);
+        if (committed) {
+            AtomicInteger count = visitCounts.get(vehicleRegNumber);
+            if (count != null) {
+                count.incrementAndGet();
+            }
+        }
+        saveStamps.incrementAndGet(stripe);
+        savesInProgress.decrementAndGet(stripe);
+    }
+
+    public void invalidate(String vehicleRegNumber) {
+        visitCounts.remove(vehicleRegNumber);
+    }
+
+    public void clear() {
+        visitCounts.clear();
+    }
+
+    private static int stripe(String vehicleRegNumber) {
+        return (vehicleRegNumber.hashCode() & Integer.MAX_VALUE) % SAVE_STAMP_STRIPES;
+    }
+
+    public int size() {
+        return visitCounts.size();
+    }
+}
@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+
+/**
+ * Keeps occupancy counters up to date from the entries and exits on the event bus, for displays running
+ * apart from the DAOs. The counters must first be reconciled with the parking table, e.g. by
+ * {@link com.parkit.parkingsystem.dao.ParkingSpotDAO#reconcileOccupancy()}; from then on every entry takes
+ * a spot of its type and every exit frees one.
+ */
+public class OccupancySubscriber implements ParkingEventBus.Subscriber {
+
+    private final OccupancyCounters occupancyCounters;
+
+    public OccupancySubscriber(OccupancyCounters occupancyCounters) {
+        this.occupancyCounters = occupancyCounters;
+    }
+
+    @Override
+    public void onEvent(ParkingEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case ENTRY:
+                occupancyCounters.add(event.getParkingType(), -1);
+                break;
+            case EXIT:
+                occupancyCounters.add(event.getParkingType(), 1);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * A vehicle entering, leaving, or being charged, as published on a {@link ParkingEventBus}.
+ * Events live in the bus's ring and are overwritten once every subscriber has seen them:
+ * a subscriber must copy what it needs before returning from {@link ParkingEventBus.Subscriber#onEvent}.
+ */
+public class ParkingEvent {
+
+    public enum Type { ENTRY, EXIT, FARE }
+
+    private long sequence;
+    private Type type;
+    private String idempotencyKey;
+    private int ticketId;
+    private String vehicleRegNumber;
+    private ParkingType parkingType;
+    private int parkingNumber;
+    private String siteId;
+    private long time;
+    private double price;
+    private boolean discount;
+
+    void set(long sequence, Type type, Ticket ticket, boolean discount) {
+        this.sequence = sequence;
+        this.type = type;
+        this.idempotencyKey = ticket.getIdempotencyKey();
+        this.ticketId = ticket.getId();
+        this.vehicleRegNumber = ticket.getVehicleRegNumber();
+        this.parkingType = ticket.getParkingSpot().getParkingType();
+        this.parkingNumber = ticket.getParkingSpot().getId();
+        this.siteId = ticket.getSiteId();
+        this.time = type == Type.ENTRY ? ticket.getInTime().getTime() : ticket.getOutTime().getTime();
+        this.price = type == Type.ENTRY ? 0 : ticket.getPrice();
+        this.discount = discount;
+    }
+
+    /**
+     * @return the position of the event on the bus, from 0, without gaps.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    /**
+     * @return the ticket's id, 0 while it is only in the gate journal.
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    /**
+     * @return the site of the ticket, null for a single-site setup.
+     */
+    public String getSiteId() {
+        return siteId;
+    }
+
+    /**
+     * @return the in-time of an entry or the out-time of an exit or fare, in epoch milliseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the fare of an exit or fare event, 0 for an entry.
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return true if the fare got the frequent user discount.
+     */
+    public boolean isDiscount() {
+        return discount;
+    }
+}
@@ -0,0 +1,284 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the entries, exits and fares of the gates to in-process subscribers, in the way of the LMAX Disruptor:
+ * events are written into a fixed ring of preallocated {@link ParkingEvent}s, and every subscriber reads every
+ * event, in order, on its own thread, at its own pace. Publishing never allocates and never locks.
+ * <p>
+ * The ring is bounded: a publisher that would overwrite an event the slowest subscriber has not read yet waits
+ * for it, so a stuck subscriber holds up the gates rather than losing events or filling the heap.
+ * Waits are counted in the {@code ParkingEventBus.publisherWaits} metric.
+ *
+ * <pre>
+ * ParkingEventBus eventBus = new ParkingEventBus(1024);
+ * eventBus.subscribe("display", subscriber);
+ * eventBus.start();
+ * </pre>
+ */
+public class ParkingEventBus implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingEventBus");
+
+    private static final Counter publisherWaitsCounter = MetricsRegistry.getDefault().counter("ParkingEventBus.publisherWaits");
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Busy-spins, then yields, before parking: an idle subscriber is woken by the next publisher
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+    private static final long JOIN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Receives the events of the bus on a thread of its own.
+     */
+    public interface Subscriber {
+        /**
+         * @param event      the event, only valid until this method returns.
+         * @param endOfBatch true for the last event already published, e.g. to flush buffered output.
+         * @throws Exception logged, the subscriber then moves on to the next event.
+         */
+        void onEvent(ParkingEvent event, boolean endOfBatch) throws Exception;
+    }
+
+    private final ParkingEvent[] ring;
+    private final int mask;
+    private final int indexShift;
+    // Lap of the ring in which each slot was last published, -1 before its first event
+    private final AtomicIntegerArray publishedLaps;
+    // Highest sequence claimed by a publisher, -1 before the first event
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<SubscriberThread> subscribers = new ArrayList<>();
+    private volatile SubscriberThread[] startedSubscribers;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity the number of events the slowest subscriber may lag behind, a power of two.
+     */
+    public ParkingEventBus(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        ring = new ParkingEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new ParkingEvent();
+        }
+        mask = capacity - 1;
+        indexShift = Integer.numberOfTrailingZeros(capacity);
+        publishedLaps = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            publishedLaps.set(i, -1);
+        }
+    }
+
+    /**
+     * Adds a subscriber, which will see every event published after {@link #start()}.
+     *
+     * @throws IllegalStateException if the bus is already started.
+     */
+    public synchronized void subscribe(String name, Subscriber subscriber) {
+        if (startedSubscribers != null) {
+            throw new IllegalStateException("Subscribers must be added before the bus starts");
+        }
+        subscribers.add(new SubscriberThread(name, subscriber));
+    }
+
+    /**
+     * Starts a thread per subscriber. Events can be published from then on.
+     */
+    public synchronized void start() {
+        if (startedSubscribers != null) {
+            throw new IllegalStateException("Event bus already started");
+        }
+        for (SubscriberThread subscriber : subscribers) {
+            subscriber.thread.start();
+        }
+        startedSubscribers = subscribers.toArray(new SubscriberThread[0]);
+    }
+
+    /**
+     * Publishes an event about a ticket, waiting for room in the ring if the slowest subscriber is a full ring behind.
+     *
+     * @param discount whether the ticket's fare got the frequent user discount, for fare events.
+     * @return false if the bus is closed, in which case the event is dropped.
+     * @throws IllegalStateException if the bus is not started.
+     */
+    public boolean publish(ParkingEvent.Type type, Ticket ticket, boolean discount) {
+        SubscriberThread[] started = startedSubscribers;
+        if (started == null) {
+            throw new IllegalStateException("Event bus not started");
+        }
+        if (closed) {
+            return false;
+        }
+        long sequence = claim(started);
+        if (sequence < 0) {
+            return false;
+        }
+        int index = (int) sequence & mask;
+        ring[index].set(sequence, type, ticket, discount);
+        // A full volatile write, so a subscriber about to park either sees the event or is seen parked
+        publishedLaps.set(index, (int) (sequence >>> indexShift));
+        for (SubscriberThread subscriber : started) {
+            if (subscriber.parked) {
+                LockSupport.unpark(subscriber.thread);
+            }
+        }
+        return true;
+    }
+
+    private long claim(SubscriberThread[] started) {
+        boolean waited = false;
+        int tries = 0;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - ring.length > minimumSequence(started, current)) {
+                if (closed) {
+                    return -1;
+                }
+                waited = true;
+                backOff(tries++, this);
+            } else if (cursor.compareAndSet(current, next)) {
+                if (waited) {
+                    publisherWaitsCounter.increment();
+                }
+                return next;
+            }
+        }
+    }
+
+    private static long minimumSequence(SubscriberThread[] started, long defaultSequence) {
+        long minimum = defaultSequence;
+        for (SubscriberThread subscriber : started) {
+            minimum = Math.min(minimum, subscriber.sequence);
+        }
+        return minimum;
+    }
+
+    private static void backOff(int tries, Object blocker) {
+        if (tries < SPIN_TRIES) {
+            return;
+        }
+        if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(blocker, MAX_PARK_NANOS);
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedLaps.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * @return the number of events published so far.
+     */
+    public long getPublishedCount() {
+        return cursor.get() + 1;
+    }
+
+    /**
+     * Stops accepting events, lets every subscriber read the events already published, and stops their threads.
+     * An event published concurrently with the close may be dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        SubscriberThread[] started = startedSubscribers;
+        if (started == null) {
+            return;
+        }
+        for (SubscriberThread subscriber : started) {
+            LockSupport.unpark(subscriber.thread);
+        }
+        for (SubscriberThread subscriber : started) {
+            try {
+                subscriber.thread.join(JOIN_TIMEOUT_MILLIS);
+                if (subscriber.thread.isAlive()) {
+                    logger.warn("Subscriber {} did not finish reading the event bus", subscriber.name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private class SubscriberThread implements Runnable {
+        private final String name;
+        private final Subscriber subscriber;
+        private final Thread thread;
+        // Highest sequence this subscriber is done with: publishers may overwrite up to one ring ahead of it
+        private volatile long sequence = -1;
+        private volatile boolean parked;
+
+        private SubscriberThread(String name, Subscriber subscriber) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.thread = new Thread(this, "event-bus-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence + 1;
+            int tries = 0;
+            while (true) {
+                long available = highestPublished(next);
+                if (available < next) {
+                    // Once closed no event is claimed any more, so the bus is drained when the cursor is reached
+                    if (closed && cursor.get() < next) {
+                        return;
+                    }
+                    waitForEvent(next, tries++);
+                    continue;
+                }
+                tries = 0;
+                for (long current = next; current <= available; current++) {
+                    try {
+                        subscriber.onEvent(ring[(int) current & mask], current == available);
+                    } catch (Exception e) {
+                        logger.error("Subscriber {} failed on event {}", name, current, e);
+                    }
+                }
+                sequence = available;
+                next = available + 1;
+            }
+        }
+
+        private long highestPublished(long next) {
+            long claimed = cursor.get();
+            long current = next;
+            while (current <= claimed && isPublished(current)) {
+                current++;
+            }
+            return current - 1;
+        }
+
+        private void waitForEvent(long next, int tries) {
+            if (tries < SPIN_TRIES + YIELD_TRIES) {
+                backOff(tries, this);
+                return;
+            }
+            parked = true;
+            // Checked again once parked is visible, so a publisher cannot slip in between unnoticed
+            if (!isPublished(next) && !closed) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            parked = false;
+        }
+    }
+}
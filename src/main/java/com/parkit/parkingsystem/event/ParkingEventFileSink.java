@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.util.JsonUtil;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the events of the bus to a file, one JSON object per line, for consumers outside the app to tail:
+ *
+ * <pre>
+ * {"sequence":0,"type":"ENTRY","ticketId":12,"idempotencyKey":"...","vehicleRegNumber":"ABCDEF","parkingType":"CAR","parkingNumber":1,"siteId":null,"time":1760692800000,"price":0.0,"discount":false}
+ * </pre>
+ *
+ * Lines are written as events arrive and flushed at the end of each batch, so a burst of events costs one write.
+ * Only the bus's thread for this subscriber uses the sink.
+ */
+public class ParkingEventFileSink implements ParkingEventBus.Subscriber, Closeable {
+
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public ParkingEventFileSink(Path file) throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void onEvent(ParkingEvent event, boolean endOfBatch) throws IOException {
+        line.setLength(0);
+        line.append("{\"sequence\":").append(event.getSequence());
+        line.append(",\"type\":\"").append(event.getType()).append('"');
+        line.append(",\"ticketId\":").append(event.getTicketId());
+        line.append(",\"idempotencyKey\":");
+        JsonUtil.appendString(line, event.getIdempotencyKey());
+        line.append(",\"vehicleRegNumber\":");
+        JsonUtil.appendString(line, event.getVehicleRegNumber());
+        line.append(",\"parkingType\":\"").append(event.getParkingType()).append('"');
+        line.append(",\"parkingNumber\":").append(event.getParkingNumber());
+        line.append(",\"siteId\":");
+        JsonUtil.appendString(line, event.getSiteId());
+        line.append(",\"time\":").append(event.getTime());
+        line.append(",\"price\":").append(event.getPrice());
+        line.append(",\"discount\":").append(event.isDiscount());
+        line.append("}\n");
+        writer.append(line);
+        if (endOfBatch) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
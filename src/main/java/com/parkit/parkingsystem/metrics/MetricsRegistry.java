@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named counters and timers. The services and DAOs record into the default registry, looking up their metrics
+ * once into static fields the way they get their loggers, and named after their class and method:
+ *
+ * <pre>
+ * private static final Timer getTicketTimer = MetricsRegistry.getDefault().timer("TicketDAO.getTicket");
+ * </pre>
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the registry the app's own metrics are recorded in.
+     */
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Returns the counter of the given name, creating it on first use.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Returns the timer of the given name, creating it on first use.
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * @return the counters by name, in name order.
+     */
+    public SortedMap<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * @return the timers by name, in name order.
+     */
+    public SortedMap<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+}
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends the metrics of a registry to a file on a fixed schedule, one line per metric and interval:
+ *
+ * <pre>
+ * 2026-10-17T09:00:10Z timer ParkingService.enter count=412 mean_us=655.2 p50_us=598.0 p90_us=901.1 p99_us=2015.2 p99.9_us=4120.6 max_us=4233.8
+ * 2026-10-17T09:00:10Z counter ParkingService.enter.FULL count=3 total=17
+ * </pre>
+ *
+ * Timer lines cover the durations recorded during the interval only, and timers that recorded nothing are left out.
+ * Counter lines give the interval's count and the total since startup.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("MetricsReporter");
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 10;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final long intervalSeconds;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Timer.Snapshot> lastTimerSnapshots = new HashMap<>();
+    private final Map<String, Long> lastCounts = new HashMap<>();
+
+    public MetricsReporter(MetricsRegistry registry, Path file, long intervalSeconds) {
+        this.registry = registry;
+        this.file = file;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reports every interval in the background, starting one interval from now.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::reportQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Appends the metrics recorded since the previous report to the file.
+     *
+     * @return the number of lines written.
+     * @throws IOException if the file cannot be written; the interval is then reported with the next one.
+     */
+    public synchronized int report() throws IOException {
+        String timestamp = Instant.now().toString();
+        StringBuilder lines = new StringBuilder();
+        Map<String, Timer.Snapshot> timerSnapshots = new HashMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        int lineCount = 0;
+        for (Map.Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+            Timer.Snapshot snapshot = entry.getValue().snapshot();
+            timerSnapshots.put(entry.getKey(), snapshot);
+            Timer.Snapshot last = lastTimerSnapshots.get(entry.getKey());
+            Timer.Snapshot interval = last == null ? snapshot : snapshot.since(last);
+            if (interval.getCount() == 0) {
+                continue;
+            }
+            lines.append(timestamp).append(" timer ").append(entry.getKey())
+                    .append(" count=").append(interval.getCount())
+                    .append(" mean_us=").append(micros(interval.getMeanNanos()));
+            for (double percentile : PERCENTILES) {
+                lines.append(" p").append(percentileLabel(percentile)).append("_us=")
+                        .append(micros(interval.getPercentileNanos(percentile)));
+            }
+            lines.append(" max_us=").append(micros(interval.getMaxNanos())).append('\n');
+            lineCount++;
+        }
+        for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+            long total = entry.getValue().getCount();
+            counts.put(entry.getKey(), total);
+            long count = total - lastCounts.getOrDefault(entry.getKey(), 0L);
+            lines.append(timestamp).append(" counter ").append(entry.getKey())
+                    .append(" count=").append(count)
+                    .append(" total=").append(total).append('\n');
+            lineCount++;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        }
+        // Only once written, so a failed write is covered by the next report
+        lastTimerSnapshots.putAll(timerSnapshots);
+        lastCounts.putAll(counts);
+        return lineCount;
+    }
+
+    private void reportQuietly() {
+        try {
+            report();
+        } catch (Exception e) {
+            logger.error("Unable to write metrics to {}", file, e);
+        }
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static String percentileLabel(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    /**
+     * Stops the schedule and writes a last report, so the metrics of the final interval are not lost.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        reportQuietly();
+    }
+}
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a vehicle entering the parking.
+ */
+public class EntryResult {
+
+    public enum Status {
+        /** A spot was allocated and the ticket opened. */
+        PARKED,
+        /** No spot of the vehicle's type is free. */
+        FULL
+    }
+
+    private static final EntryResult FULL = new EntryResult(Status.FULL, null);
+
+    private final Status status;
+    private final Ticket ticket;
+
+    private EntryResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public static EntryResult parked(Ticket ticket) {
+        return new EntryResult(Status.PARKED, ticket);
+    }
+
+    public static EntryResult full() {
+        return FULL;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isParked() {
+        return status == Status.PARKED;
+    }
+
+    /**
+     * @return the open ticket, or null unless parked.
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
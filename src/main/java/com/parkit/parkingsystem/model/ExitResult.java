@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a vehicle leaving the parking.
+ */
+public class ExitResult {
+
+    public enum Status {
+        /** The ticket was priced and closed, and the spot freed. */
+        EXITED,
+        /** The vehicle has no open ticket. */
+        NO_OPEN_TICKET,
+        /** The ticket could not be closed; nothing was changed. */
+        UPDATE_FAILED
+    }
+
+    private static final ExitResult NO_OPEN_TICKET = new ExitResult(Status.NO_OPEN_TICKET, null);
+    private static final ExitResult UPDATE_FAILED = new ExitResult(Status.UPDATE_FAILED, null);
+
+    private final Status status;
+    private final Ticket ticket;
+
+    private ExitResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public static ExitResult exited(Ticket ticket) {
+        return new ExitResult(Status.EXITED, ticket);
+    }
+
+    public static ExitResult noOpenTicket() {
+        return NO_OPEN_TICKET;
+    }
+
+    public static ExitResult updateFailed() {
+        return UPDATE_FAILED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isExited() {
+        return status == Status.EXITED;
+    }
+
+    /**
+     * @return the closed ticket with its price, or null unless exited.
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * A vehicle entering or leaving, as recorded by a gate in the local journal before it reaches the database.
+ * Entry and exit events of the same visit share the ticket's idempotency key.
+ */
+public class GateEvent {
+
+    public enum Type { ENTRY, EXIT }
+
+    private final Type type;
+    private final String idempotencyKey;
+    private final int ticketId;
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+    private final int parkingNumber;
+    private final long time;
+    private final double price;
+
+    /**
+     * @param ticketId the ticket's id when it is already in the database, 0 otherwise.
+     * @param time     the in-time of an entry or the out-time of an exit, in epoch milliseconds.
+     * @param price    the fare paid on exit, 0 for an entry.
+     */
+    public GateEvent(Type type, String idempotencyKey, int ticketId, String vehicleRegNumber,
+                     ParkingType parkingType, int parkingNumber, long time, double price) {
+        this.type = type;
+        this.idempotencyKey = idempotencyKey;
+        this.ticketId = ticketId;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.parkingNumber = parkingNumber;
+        this.time = time;
+        this.price = price;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+}
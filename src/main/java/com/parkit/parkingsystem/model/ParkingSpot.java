@@ -6,6 +6,7 @@ public class ParkingSpot {
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String siteId;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
         this.number = number;
@@ -13,6 +14,17 @@ public class ParkingSpot {
         this.isAvailable = isAvailable;
     }
 
+    /**
+     * @return the site the spot is in; null for a single-site setup. Parking numbers are only unique within a site.
+     */
+    public String getSiteId() {
+        return siteId;
+    }
+
+    public void setSiteId(String siteId) {
+        this.siteId = siteId;
+    }
+
     public int getId() {
         return number;
     }
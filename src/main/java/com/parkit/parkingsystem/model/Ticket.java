@@ -10,6 +10,19 @@ public class Ticket {
     private double price;
     private Date inTime;
     private Date outTime;
+    private String idempotencyKey;
+    private String siteId;
+
+    /**
+     * @return the site, i.e. the garage and its database, the ticket belongs to; null for a single-site setup.
+     */
+    public String getSiteId() {
+        return siteId;
+    }
+
+    public void setSiteId(String siteId) {
+        this.siteId = siteId;
+    }
 
     public int getId() {
         return id;
@@ -58,4 +71,12 @@ public class Ticket {
     public void setOutTime(Date outTime) {
         this.outTime = outTime;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -1,12 +1,25 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.Ticket;
 
-import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class FareCalculatorService {
 
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+
+    // Below this many tickets a parallel batch is priced by a single task
+    private static final int PARALLEL_BATCH_THRESHOLD = 1 << 16;
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private static final Timer calculateFareTimer = MetricsRegistry.getDefault().timer("FareCalculatorService.calculateFare");
+
     /**
      * Calculates the fare for a parking ticket based on the duration and parking type.
      *
@@ -15,60 +28,21 @@ public class FareCalculatorService {
      * @throws IllegalArgumentException If the provided exit time is incorrect or earlier than the entry time.
      */
     public void calculateFare(Ticket ticket, boolean discount) throws IllegalArgumentException {
-        // Checks if the exit time is correct
-        if (ticket.getOutTime() == null || ticket.getOutTime().before(ticket.getInTime())) {
-            throw new IllegalArgumentException("Incorrect exit time: " + ticket.getOutTime().toString());
-        }
-
-        // Gets entry and exit times in milliseconds
-        long inHour = ticket.getInTime().getTime();
-        long outHour = ticket.getOutTime().getTime();
+        long start = calculateFareTimer.start();
+        try {
+            // Checks if the exit time is correct
+            if (ticket.getOutTime() == null || ticket.getOutTime().before(ticket.getInTime())) {
+                throw new IllegalArgumentException("Incorrect exit time: " + ticket.getOutTime().toString());
+            }
 
-        // Calculates duration in hours
-        double duration = (double) (outHour - inHour) / (60 * 60 * 1000);
+            // Gets entry and exit times in milliseconds
+            long inHour = ticket.getInTime().getTime();
+            long outHour = ticket.getOutTime().getTime();
 
-        // Selects the parking type
-        switch (ticket.getParkingSpot().getParkingType()) {
-            case CAR: {
-                // Calculates fare for cars
-                if (duration <= 0.5) {
-                    ticket.setPrice(0);
-                    break;
-                }
-                if (discount) {
-                    double totalPrice = (duration * Fare.CAR_RATE_PER_HOUR - (duration * Fare.CAR_RATE_PER_HOUR * 0.05));
-                    BigDecimal roundedPrice = BigDecimal.valueOf(totalPrice).setScale(2, BigDecimal.ROUND_HALF_UP);
-                    double roundedPriceDouble = roundedPrice.doubleValue();
-                    ticket.setPrice(roundedPriceDouble);
-                    break;
-                }
-                double totalPrice = duration * Fare.CAR_RATE_PER_HOUR;
-                BigDecimal roundedPrice = BigDecimal.valueOf(totalPrice).setScale(2, BigDecimal.ROUND_HALF_UP);
-                double roundedPriceDouble = roundedPrice.doubleValue();
-                ticket.setPrice(roundedPriceDouble);
-                break;
-            }
-            case BIKE: {
-                // Calculates fare for bikes
-                if (duration <= 0.5) {
-                    ticket.setPrice(0);
-                    break;
-                }
-                if (discount) {
-                    double totalPrice = (duration * Fare.BIKE_RATE_PER_HOUR) - (duration * Fare.BIKE_RATE_PER_HOUR * 0.05);
-                    BigDecimal roundedPrice = BigDecimal.valueOf(totalPrice).setScale(2, BigDecimal.ROUND_HALF_UP);
-                    double roundedPriceDouble = roundedPrice.doubleValue();
-                    ticket.setPrice(roundedPriceDouble);
-                    break;
-                }
-                double totalPrice = (duration * Fare.BIKE_RATE_PER_HOUR);
-                BigDecimal roundedPrice = BigDecimal.valueOf(totalPrice).setScale(2, BigDecimal.ROUND_HALF_UP);
-                double roundedPriceDouble = roundedPrice.doubleValue();
-                ticket.setPrice(roundedPriceDouble);
-                break;
-            }
-            default:
-                throw new IllegalArgumentException("Unknown parking type");
+            long priceInCents = calculateFareInCents(outHour - inHour, ticket.getParkingSpot().getParkingType(), discount);
+            ticket.setPrice(priceInCents / 100.0);
+        } finally {
+            calculateFareTimer.stop(start);
         }
     }
 
@@ -80,4 +54,123 @@ public class FareCalculatorService {
     public void calculateFare(Ticket ticket) {
         calculateFare(ticket, false);
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the fare of a stay in whole cents, rounded half up, using only integer arithmetic.
+     *
+     * @param durationMillis The parking duration in milliseconds, not negative.
+     * @param parkingType    The type of the parking spot used.
+     * @param discount       Indicates whether a discount should be applied.
+     * @return the fare in cents, 0 for stays of 30 minutes or less.
+     * @throws IllegalArgumentException If the parking type has no rate.
+     */
+    public long calculateFareInCents(long durationMillis, ParkingType parkingType, boolean discount) {
+        return fareInCents(durationMillis, parkingType, discount);
+    }
+
+    private static long fareInCents(long durationMillis, ParkingType parkingType, boolean discount) {
+        long ratePerHourInCents = getRatePerHourInCents(parkingType);
+        if (durationMillis <= Fare.FREE_PARKING_MILLIS) {
+            return 0;
+        }
+        // price = duration * rate * percent / (hour * 100), half up: (2 * numerator + denominator) / (2 * denominator)
+        long numerator = durationMillis * ratePerHourInCents * (discount ? Fare.DISCOUNTED_FARE_PERCENT : 100);
+        long denominator = MILLIS_PER_HOUR * 100;
+        return (2 * numerator + denominator) / (2 * denominator);
+    }
+
+    /**
+     * Calculates the fares of a batch of tickets given as parallel arrays, with the same rules as
+     * {@link #calculateFareInCents(long, ParkingType, boolean)}. Allocates nothing, so whole months of
+     * tickets can be repriced without creating a Ticket per row.
+     *
+     * @param inTimes       The entry times, in epoch milliseconds.
+     * @param outTimes      The exit times, in epoch milliseconds.
+     * @param typeOrdinals  The {@link ParkingType} ordinals of the spots used.
+     * @param discounts     Whether a discount applies to each ticket.
+     * @param pricesInCents Receives the fare of each ticket, in cents.
+     * @throws IllegalArgumentException If the arrays differ in length, or a ticket has an exit time earlier than
+     *                                  its entry time or a parking type without a rate. Fares before it are written.
+     */
+    public void calculateFares(long[] inTimes, long[] outTimes, int[] typeOrdinals, boolean[] discounts, long[] pricesInCents) {
+        checkBatch(inTimes, outTimes, typeOrdinals, discounts, pricesInCents);
+        calculateFares(inTimes, outTimes, typeOrdinals, discounts, pricesInCents, 0, inTimes.length);
+    }
+
+    /**
+     * Same as {@link #calculateFares(long[], long[], int[], boolean[], long[])}, splitting the batch
+     * across the common fork-join pool.
+     */
+    public void calculateFaresInParallel(long[] inTimes, long[] outTimes, int[] typeOrdinals, boolean[] discounts, long[] pricesInCents) {
+        checkBatch(inTimes, outTimes, typeOrdinals, discounts, pricesInCents);
+        ForkJoinPool.commonPool().invoke(new FareBatchTask(inTimes, outTimes, typeOrdinals, discounts, pricesInCents, 0, inTimes.length));
+    }
+
+    private static void checkBatch(long[] inTimes, long[] outTimes, int[] typeOrdinals, boolean[] discounts, long[] pricesInCents) {
+        int length = inTimes.length;
+        if (outTimes.length != length || typeOrdinals.length != length || discounts.length != length || pricesInCents.length != length) {
+            throw new IllegalArgumentException("Fare batch arrays must all have the same length");
+        }
+    }
+
+    private static void calculateFares(long[] inTimes, long[] outTimes, int[] typeOrdinals, boolean[] discounts, long[] pricesInCents, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long durationMillis = outTimes[i] - inTimes[i];
+            if (durationMillis < 0) {
+                throw new IllegalArgumentException("Incorrect exit time for ticket at index " + i);
+            }
+            int typeOrdinal = typeOrdinals[i];
+            if (typeOrdinal < 0 || typeOrdinal >= PARKING_TYPES.length) {
+                throw new IllegalArgumentException("Unknown parking type ordinal " + typeOrdinal + " at index " + i);
+            }
+            pricesInCents[i] = fareInCents(durationMillis, PARKING_TYPES[typeOrdinal], discounts[i]);
+        }
+    }
+
+    // Static, so a task holds the arrays it prices and no reference to the service
+    private static class FareBatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] inTimes;
+        private final long[] outTimes;
+        private final int[] typeOrdinals;
+        private final boolean[] discounts;
+        private final long[] pricesInCents;
+        private final int from;
+        private final int to;
+
+        FareBatchTask(long[] inTimes, long[] outTimes, int[] typeOrdinals, boolean[] discounts, long[] pricesInCents, int from, int to) {
+            this.inTimes = inTimes;
+            this.outTimes = outTimes;
+            this.typeOrdinals = typeOrdinals;
+            this.discounts = discounts;
+            this.pricesInCents = pricesInCents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_BATCH_THRESHOLD) {
+                calculateFares(inTimes, outTimes, typeOrdinals, discounts, pricesInCents, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FareBatchTask(inTimes, outTimes, typeOrdinals, discounts, pricesInCents, from, middle),
+                    new FareBatchTask(inTimes, outTimes, typeOrdinals, discounts, pricesInCents, middle, to));
+        }
+    }
+
+    private static long getRatePerHourInCents(ParkingType parkingType) {
+        // Selects the parking type
+        switch (parkingType) {
+            case CAR:
+                return Fare.CAR_RATE_PER_HOUR_IN_CENTS;
+            case BIKE:
+                return Fare.BIKE_RATE_PER_HOUR_IN_CENTS;
+            default:
+                throw new IllegalArgumentException("Unknown parking type");
+        }
+    }
+}
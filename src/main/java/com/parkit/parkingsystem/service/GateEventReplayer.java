@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Applies the gate journal to the database, in journal order, a batch of events per transaction.
+ * Tickets are looked up by idempotency key before being created or closed, so replaying events that already reached
+ * the database (after a crash between the commit and the replay position update) changes nothing.
+ * While the database is unreachable the events stay in the journal and are retried.
+ */
+public class GateEventReplayer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventReplayer");
+
+    private static final int BATCH_SIZE = 100;
+    private static final long IDLE_DELAY_MILLIS = 50;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final GateEventJournal journal;
+    private final TicketDAO ticketDAO;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final Thread replayer;
+    private volatile boolean running;
+
+    /**
+     * @param parkingSpotDAO a DAO without availability index: the gates already updated the index when the events happened.
+     */
+    public GateEventReplayer(GateEventJournal journal, TicketDAO ticketDAO, ParkingSpotDAO parkingSpotDAO) {
+        this.journal = journal;
+        this.ticketDAO = ticketDAO;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.replayer = new Thread(this::runReplayer, "gate-journal-replay");
+        this.replayer.setDaemon(true);
+    }
+
+    /**
+     * Starts replaying in the background.
+     */
+    public void start() {
+        running = true;
+        replayer.start();
+    }
+
+    /**
+     * Replays every event journaled so far.
+     *
+     * @return the number of events replayed.
+     * @throws SQLException if the database rejects an event; the events from that batch on stay in the journal.
+     */
+    public synchronized int replayPending() throws SQLException, IOException {
+        int replayed = 0;
+        List<GateEventJournal.Record> batch;
+        while (!(batch = journal.read(journal.getReplayPosition(), BATCH_SIZE)).isEmpty()) {
+            try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+                for (GateEventJournal.Record record : batch) {
+                    apply(record.getEvent());
+                }
+                unitOfWork.commit();
+            }
+            journal.markReplayed(batch);
+            replayed += batch.size();
+        }
+        return replayed;
+    }
+
+    private void apply(GateEvent event) throws SQLException {
+        if (event.getType() == GateEvent.Type.ENTRY) {
+            if (ticketDAO.getTicketByIdempotencyKey(event.getIdempotencyKey()) != null) {
+                return;
+            }
+            if (!parkingSpotDAO.updateParking(new ParkingSpot(event.getParkingNumber(), event.getParkingType(), false))) {
+                throw new SQLException("Unable to mark parking spot " + event.getParkingNumber() + " as taken");
+            }
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(event.getParkingNumber(), event.getParkingType(), false));
+            ticket.setVehicleRegNumber(event.getVehicleRegNumber());
+            ticket.setPrice(0);
+            ticket.setInTime(new Date(event.getTime()));
+            ticket.setIdempotencyKey(event.getIdempotencyKey());
+            if (!ticketDAO.saveTickets(Collections.singletonList(ticket))) {
+                throw new SQLException("Unable to save ticket " + event.getIdempotencyKey());
+            }
+        } else {
+            Ticket ticket = event.getIdempotencyKey() != null
+                    ? ticketDAO.getTicketByIdempotencyKey(event.getIdempotencyKey())
+                    : ticketDAO.getTicketById(event.getTicketId());
+            if (ticket == null) {
+                logger.error("No ticket for exit of {}, skipping it", event.getVehicleRegNumber());
+                return;
+            }
+            if (ticket.getOutTime() != null) {
+                return;
+            }
+            ticket.setVehicleRegNumber(event.getVehicleRegNumber());
+            ticket.setOutTime(new Date(event.getTime()));
+            ticket.setPrice(event.getPrice());
+            if (!ticketDAO.updateTicket(ticket)
+                    || !parkingSpotDAO.updateParking(new ParkingSpot(event.getParkingNumber(), event.getParkingType(), true))) {
+                throw new SQLException("Unable to close ticket " + ticket.getId());
+            }
+        }
+    }
+
+    private void runReplayer() {
+        while (running) {
+            try {
+                if (replayPending() == 0) {
+                    Thread.sleep(IDLE_DELAY_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Error replaying gate journal, retrying", e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the background replay; events not replayed yet stay in the journal.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            replayer.join(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
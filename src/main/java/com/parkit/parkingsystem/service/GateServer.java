@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the gate menu over TCP, so that many entry and exit gates share one {@link ParkingService}.
+ * Each connection is a gate session running on its own thread with its own input and output; connections beyond
+ * the maximum number of gates are told the gates are busy and closed, rather than left waiting on a queue.
+ */
+public class GateServer implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateServer");
+
+    public static final int DEFAULT_MAX_GATES = 64;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final ParkingService parkingService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    // One permit per gate, taken before a session is handed to the pool, so the pool's queue never grows
+    private final Semaphore freeGates;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * @param port the port to listen on, or 0 for any free port.
+     */
+    public GateServer(ParkingService parkingService, int port, int maxGates) throws IOException {
+        this.parkingService = parkingService;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(port));
+        this.freeGates = new Semaphore(maxGates);
+        AtomicInteger sessionCount = new AtomicInteger();
+        this.sessions = Executors.newFixedThreadPool(maxGates, runnable -> {
+            Thread thread = new Thread(runnable, "gate-session-" + sessionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::acceptGates, "gate-server");
+        this.acceptor.setDaemon(true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        acceptor.start();
+        logger.info("Accepting gates on port {}", getPort());
+    }
+
+    private void acceptGates() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!freeGates.tryAcquire()) {
+                    rejectGate(socket);
+                    continue;
+                }
+                openSockets.add(socket);
+                sessions.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.error("Error accepting a gate", e);
+                }
+            }
+        }
+    }
+
+    private void runSession(Socket socket) {
+        try {
+            PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+            InputReaderUtil inputReaderUtil = new InputReaderUtil(socket.getInputStream(), out);
+            out.println("Welcome to Parking System!");
+            boolean continueSession = true;
+            while (continueSession) {
+                loadMenu(out);
+                if (!inputReaderUtil.hasInput()) {
+                    break;
+                }
+                int option = inputReaderUtil.readSelection();
+                switch (option) {
+                    case 1: {
+                        parkingService.processIncomingVehicle(inputReaderUtil, out);
+                        break;
+                    }
+                    case 2: {
+                        parkingService.processExitingVehicle(inputReaderUtil, out);
+                        break;
+                    }
+                    case 3: {
+                        out.println("Closing gate session!");
+                        continueSession = false;
+                        break;
+                    }
+                    default: out.println("Unsupported option. Please enter a number corresponding to the provided menu");
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error in gate session", e);
+        } finally {
+            openSockets.remove(socket);
+            closeSocket(socket);
+            freeGates.release();
+        }
+    }
+
+    private static void rejectGate(Socket socket) {
+        logger.warn("Every gate session is busy, turning away {}", socket.getRemoteSocketAddress());
+        try {
+            PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8.name());
+            out.println("All gates are busy, please try again later.");
+        } catch (IOException e) {
+            logger.error("Error turning away a gate", e);
+        } finally {
+            closeSocket(socket);
+        }
+    }
+
+    private static void loadMenu(PrintStream out) {
+        out.println("Please select an option. Simply enter the number to choose an action");
+        out.println("1 New Vehicle Entering - Allocate Parking Space");
+        out.println("2 Vehicle Exiting - Generate Ticket Price");
+        out.println("3 Close Gate Session");
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.error("Error closing gate connection", e);
+        }
+    }
+
+    /**
+     * Stops accepting gates and disconnects the open sessions, letting the vehicles being processed finish.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+        for (Socket socket : openSockets) {
+            // Unblocks sessions waiting for input, while letting them write their last answer
+            try {
+                socket.shutdownInput();
+            } catch (IOException e) {
+                // Already closed by its session
+            }
+        }
+        try {
+            if (!sessions.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.error("Gate sessions still running after {}s", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
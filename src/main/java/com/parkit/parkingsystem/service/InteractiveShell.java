@@ -1,11 +1,28 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.dao.RevenueAggregator;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.event.OccupancySubscriber;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.event.ParkingEventFileSink;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.MetricsReporter;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
@@ -16,9 +33,60 @@ public class InteractiveShell {
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingSpotStore parkingSpotStore;
+        TicketDAO ticketDAO = null;
+        OccupancyReconciler occupancyReconciler = null;
+        RevenueSnapshotWriter revenueSnapshotWriter = null;
+        GateEventJournal gateEventJournal = null;
+        GateEventReplayer gateEventReplayer = null;
+        ParkingService parkingService;
+        if (usesInMemoryStore()) {
+            parkingSpotStore = InMemoryParkingSpotStore.withSpots(Integer.getInteger("parkit.store.carSpots", 3),
+                    Integer.getInteger("parkit.store.bikeSpots", 2));
+            parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, new InMemoryTicketStore());
+            logger.info("Keeping parking spots and tickets in memory only");
+        } else {
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotStore = parkingSpotDAO;
+            ticketDAO = new TicketDAO();
+            parkingSpotDAO.parkingSpotCache = ticketDAO.parkingSpotCache;
+            parkingSpotDAO.loadAvailabilityIndex();
+            parkingSpotDAO.occupancyCounters = new OccupancyCounters();
+            occupancyReconciler = new OccupancyReconciler(parkingSpotDAO,
+                    Long.getLong("parkit.occupancy.reconcileSeconds", OccupancyReconciler.DEFAULT_INTERVAL_SECONDS));
+            occupancyReconciler.start();
+            ticketDAO.visitCountCache = new VisitCountCache();
+            ticketDAO.writeBehind = startWriteBehind(ticketDAO);
+            revenueSnapshotWriter = startRevenueAggregation(ticketDAO);
+            gateEventJournal = openGateJournal();
+            if (gateEventJournal != null) {
+                // The replayer's changes reach the database after the gates answered, so it is the one keeping the counters
+                ParkingSpotDAO replayParkingSpotDAO = new ParkingSpotDAO();
+                replayParkingSpotDAO.occupancyCounters = parkingSpotDAO.occupancyCounters;
+                gateEventReplayer = new GateEventReplayer(gateEventJournal, ticketDAO, replayParkingSpotDAO);
+                gateEventReplayer.start();
+                parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, gateEventJournal);
+            } else {
+                parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+            }
+        }
+        ParkingEventFileSink eventFileSink = openEventFileSink();
+        OccupancySubscriber occupancySubscriber = createOccupancySubscriber(parkingSpotStore);
+        ParkingEventBus eventBus = null;
+        if (eventFileSink != null || occupancySubscriber != null) {
+            eventBus = new ParkingEventBus(Integer.getInteger("parkit.events.capacity", ParkingEventBus.DEFAULT_CAPACITY));
+            if (eventFileSink != null) {
+                eventBus.subscribe("file", eventFileSink);
+            }
+            if (occupancySubscriber != null) {
+                eventBus.subscribe("occupancy", occupancySubscriber);
+            }
+            eventBus.start();
+            parkingService.setEventBus(eventBus);
+        }
+        MetricsReporter metricsReporter = startMetricsReporter();
+        GateServer gateServer = startGateServer(parkingService);
+        ParkingHttpServer httpServer = startHttpServer(parkingService, parkingSpotStore);
 
         while(continueApp){
             loadMenu();
@@ -33,6 +101,35 @@ public class InteractiveShell {
                     break;
                 }
                 case 3: {
+                    if (gateServer != null) {
+                        closeGateServer(gateServer);
+                    }
+                    if (httpServer != null) {
+                        httpServer.close();
+                    }
+                    if (gateEventReplayer != null) {
+                        gateEventReplayer.close();
+                        closeGateJournal(gateEventJournal);
+                    }
+                    if (ticketDAO != null && ticketDAO.writeBehind != null) {
+                        ticketDAO.writeBehind.close();
+                    }
+                    if (occupancyReconciler != null) {
+                        occupancyReconciler.close();
+                    }
+                    if (revenueSnapshotWriter != null) {
+                        revenueSnapshotWriter.close();
+                    }
+                    if (eventBus != null) {
+                        // After the servers, so every entry and exit they processed is written out
+                        eventBus.close();
+                        if (eventFileSink != null) {
+                            closeEventFileSink(eventFileSink);
+                        }
+                    }
+                    if (metricsReporter != null) {
+                        metricsReporter.close();
+                    }
                     System.out.println("Exiting from the system!");
                     continueApp = false;
                     break;
@@ -42,6 +139,221 @@ public class InteractiveShell {
         }
     }
 
+    /**
+     * Returns true if the parkit.store system property is set to memory: spots and tickets are then kept in memory only,
+     * with parkit.store.carSpots car spots and parkit.store.bikeSpots bike spots, and lost on shutdown.
+     */
+    public static boolean usesInMemoryStore(){
+        return "memory".equals(System.getProperty("parkit.store"));
+    }
+
+    /**
+     * Starts the write-behind mode of ticket saves if the parkit.writeBehind system property names its durability,
+     * ACK_AFTER_ENQUEUE or ACK_AFTER_FLUSH, journaling to parkit.writeBehind.journal (ticket-journal.bin by default).
+     *
+     * @return the started write-behind, or null to save tickets directly.
+     */
+    private static TicketWriteBehind startWriteBehind(TicketDAO ticketDAO){
+        String durability = System.getProperty("parkit.writeBehind");
+        if (durability == null) {
+            return null;
+        }
+        try {
+            Path journalPath = Paths.get(System.getProperty("parkit.writeBehind.journal", "ticket-journal.bin"));
+            TicketWriteBehind writeBehind = new TicketWriteBehind(ticketDAO, TicketWriteBehind.Durability.valueOf(durability), journalPath);
+            writeBehind.start();
+            logger.info("Saving tickets in write-behind mode with {}", durability);
+            return writeBehind;
+        } catch (Exception e) {
+            logger.error("Unable to start write-behind mode, saving tickets directly", e);
+            return null;
+        }
+    }
+
+    /**
+     * Opens the gate journal in the directory named by the parkit.gateJournal system property, if set.
+     *
+     * @return the journal, or null to record entries and exits directly in the database.
+     */
+    private static GateEventJournal openGateJournal(){
+        String directory = System.getProperty("parkit.gateJournal");
+        if (directory == null) {
+            return null;
+        }
+        try {
+            GateEventJournal gateEventJournal = new GateEventJournal(Paths.get(directory));
+            logger.info("Recording entries and exits in the gate journal {}", directory);
+            return gateEventJournal;
+        } catch (Exception e) {
+            logger.error("Unable to open the gate journal, recording entries and exits directly", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts serving remote gates if the parkit.gateServer.port system property is set, with at most
+     * parkit.gateServer.maxGates sessions at once. The console keeps working as one more gate.
+     *
+     * @return the started server, or null.
+     */
+    private static GateServer startGateServer(ParkingService parkingService){
+        String port = System.getProperty("parkit.gateServer.port");
+        if (port == null) {
+            return null;
+        }
+        try {
+            int maxGates = Integer.getInteger("parkit.gateServer.maxGates", GateServer.DEFAULT_MAX_GATES);
+            GateServer gateServer = new GateServer(parkingService, Integer.parseInt(port), maxGates);
+            gateServer.start();
+            return gateServer;
+        } catch (Exception e) {
+            logger.error("Unable to start the gate server, only the console can process vehicles", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts the HTTP API if the parkit.http.port system property is set, handling requests on
+     * parkit.http.threads worker threads.
+     *
+     * @return the started server, or null.
+     */
+    private static ParkingHttpServer startHttpServer(ParkingService parkingService, ParkingSpotStore parkingSpotStore){
+        String port = System.getProperty("parkit.http.port");
+        if (port == null) {
+            return null;
+        }
+        try {
+            int workerThreads = Integer.getInteger("parkit.http.threads", ParkingHttpServer.DEFAULT_WORKER_THREADS);
+            ParkingHttpServer httpServer = new ParkingHttpServer(parkingService, parkingSpotStore, Integer.parseInt(port), workerThreads);
+            httpServer.start();
+            return httpServer;
+        } catch (Exception e) {
+            logger.error("Unable to start the HTTP API", e);
+            return null;
+        }
+    }
+
+    /**
+     * Aggregates revenue and occupancy per minute, hour and day if the parkit.revenue.snapshotFile system property
+     * is set, restoring the snapshot from that file and writing it every parkit.revenue.snapshotSeconds.
+     *
+     * @return the started snapshot writer, or null to aggregate nothing.
+     */
+    private static RevenueSnapshotWriter startRevenueAggregation(TicketDAO ticketDAO){
+        String file = System.getProperty("parkit.revenue.snapshotFile");
+        if (file == null) {
+            return null;
+        }
+        RevenueAggregator revenueAggregator = new RevenueAggregator();
+        RevenueSnapshotWriter revenueSnapshotWriter = new RevenueSnapshotWriter(revenueAggregator, Paths.get(file),
+                Long.getLong("parkit.revenue.snapshotSeconds", RevenueSnapshotWriter.DEFAULT_INTERVAL_SECONDS));
+        revenueSnapshotWriter.start();
+        ticketDAO.revenueAggregator = revenueAggregator;
+        logger.info("Aggregating revenue into {}", file);
+        return revenueSnapshotWriter;
+    }
+
+    /**
+     * Opens the file named by the parkit.events.file system property, if set, to append every entry, fare and exit to.
+     *
+     * @return the sink, or null to publish no events.
+     */
+    private static ParkingEventFileSink openEventFileSink(){
+        String file = System.getProperty("parkit.events.file");
+        if (file == null) {
+            return null;
+        }
+        try {
+            ParkingEventFileSink eventFileSink = new ParkingEventFileSink(Paths.get(file));
+            logger.info("Writing parking events to {}", file);
+            return eventFileSink;
+        } catch (Exception e) {
+            logger.error("Unable to open the parking event file, publishing no events", e);
+            return null;
+        }
+    }
+
+    /**
+     * Counts the free spots of each type if the parkit.events.occupancy system property is true, and logs each type
+     * that fills up. The database DAO already keeps counters of its own, which are used as they are; the in-memory
+     * store's spots are counted from the entries and exits on the event bus, starting from the free spots in the store.
+     *
+     * @return the subscriber to put on the bus, or null.
+     */
+    private static OccupancySubscriber createOccupancySubscriber(ParkingSpotStore parkingSpotStore){
+        if (!Boolean.getBoolean("parkit.events.occupancy")) {
+            return null;
+        }
+        if (parkingSpotStore instanceof ParkingSpotDAO && ((ParkingSpotDAO) parkingSpotStore).occupancyCounters != null) {
+            // A second set of counters fed by the events would only drift from the DAO's
+            addFullListener(((ParkingSpotDAO) parkingSpotStore).occupancyCounters);
+            return null;
+        }
+        OccupancyCounters occupancyCounters = new OccupancyCounters();
+        for (ParkingType parkingType : ParkingType.values()) {
+            int available = parkingSpotStore.getAvailableSlotCount(parkingType);
+            if (available < 0) {
+                logger.error("Unable to count the free {} spots, counting no occupancy from the parking events", parkingType);
+                return null;
+            }
+            occupancyCounters.reconcile(parkingType, available);
+        }
+        addFullListener(occupancyCounters);
+        logger.info("Counting free parking spots from the parking events");
+        return new OccupancySubscriber(occupancyCounters);
+    }
+
+    private static void addFullListener(OccupancyCounters occupancyCounters){
+        occupancyCounters.addListener((parkingType, available) -> {
+            if (available == 0) {
+                logger.info("No {} parking spot left", parkingType);
+            }
+        });
+    }
+
+    private static void closeEventFileSink(ParkingEventFileSink eventFileSink){
+        try {
+            eventFileSink.close();
+        } catch (Exception e) {
+            logger.error("Unable to close the parking event file", e);
+        }
+    }
+
+    /**
+     * Starts appending the app's metrics to the file named by the parkit.metrics.file system property, if set,
+     * every parkit.metrics.intervalSeconds.
+     *
+     * @return the started reporter, or null.
+     */
+    private static MetricsReporter startMetricsReporter(){
+        String file = System.getProperty("parkit.metrics.file");
+        if (file == null) {
+            return null;
+        }
+        long intervalSeconds = Long.getLong("parkit.metrics.intervalSeconds", MetricsReporter.DEFAULT_INTERVAL_SECONDS);
+        MetricsReporter metricsReporter = new MetricsReporter(MetricsRegistry.getDefault(), Paths.get(file), intervalSeconds);
+        metricsReporter.start();
+        logger.info("Writing metrics to {} every {} seconds", file, intervalSeconds);
+        return metricsReporter;
+    }
+
+    private static void closeGateServer(GateServer gateServer){
+        try {
+            gateServer.close();
+        } catch (Exception e) {
+            logger.error("Unable to close the gate server", e);
+        }
+    }
+
+    private static void closeGateJournal(GateEventJournal gateEventJournal){
+        try {
+            gateEventJournal.close();
+        } catch (Exception e) {
+            logger.error("Unable to close the gate journal", e);
+        }
+    }
+
     private static void loadMenu(){
         System.out.println("Please select an option. Simply enter the number to choose an action");
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciles the occupancy counters of a {@link ParkingSpotDAO} with the parking table on a fixed schedule,
+ * so spots freed or taken outside the app only skew the entrance signs until the next run.
+ */
+public class OccupancyReconciler implements AutoCloseable {
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final long intervalSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    public OccupancyReconciler(ParkingSpotDAO parkingSpotDAO, long intervalSeconds) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reconciles the counters right away, then every interval in the background.
+     *
+     * @return false if the first reconciliation failed; the counters are then used once a later one succeeds.
+     */
+    public boolean start() {
+        boolean reconciled = parkingSpotDAO.reconcileOccupancy();
+        // reconcileOccupancy logs its own errors, so the schedule keeps running after a failed run
+        scheduler.scheduleWithFixedDelay(parkingSpotDAO::reconcileOccupancy, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return reconciled;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
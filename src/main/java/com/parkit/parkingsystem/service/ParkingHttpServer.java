@@ -0,0 +1,249 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.JsonUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP/JSON API for gate controllers, backed by {@link ParkingService}:
+ * <ul>
+ *     <li>{@code POST /entries} with {@code {"vehicleType": "CAR", "vehicleRegNumber": "ABCDEF"}} parks a vehicle;</li>
+ *     <li>{@code POST /exits} with {@code {"vehicleRegNumber": "ABCDEF"}} prices and closes its ticket;</li>
+ *     <li>{@code GET /availability/{type}} counts the free spots of a type.</li>
+ * </ul>
+ * Connections are accepted and read by the JDK server's selector thread and kept alive between requests;
+ * the requests themselves, which wait for the database, run on a fixed pool of worker threads.
+ */
+public class ParkingHttpServer implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingHttpServer");
+
+    public static final int DEFAULT_WORKER_THREADS = 32;
+
+    private static final int MAX_REQUEST_BODY_SIZE = 4096;
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    // Letters, digits, spaces and hyphens, no longer than the VEHICLE_REG_NUMBER column
+    private static final Pattern VEHICLE_REG_NUMBER = Pattern.compile("[A-Za-z0-9 -]{1,10}");
+
+    static {
+        // The JDK server writes the headers and the body of an answer separately; with Nagle's algorithm on, the body
+        // then waits for the client's delayed ACK, adding 40ms to every keep-alive request. Read once, on first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ParkingService parkingService;
+    private final ParkingSpotStore parkingSpotDAO;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    /**
+     * @param port the port to listen on, or 0 for any free port.
+     */
+    public ParkingHttpServer(ParkingService parkingService, ParkingSpotStore parkingSpotDAO, int port, int workerThreads) throws IOException {
+        this.parkingService = parkingService;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(workers);
+        server.createContext("/entries", handler("POST", this::handleEntry));
+        server.createContext("/exits", handler("POST", this::handleExit));
+        server.createContext("/availability/", handler("GET", this::handleAvailability));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Serving the HTTP API on port {}", getPort());
+    }
+
+    private Response handleEntry(HttpExchange exchange) throws Exception {
+        if (!exchange.getRequestURI().getPath().equals("/entries")) {
+            return Response.error(404, "Not found");
+        }
+        Map<String, String> request = JsonUtil.parseObject(readBody(exchange));
+        ParkingType parkingType = parseVehicleType(request.get("vehicleType"));
+        String vehicleRegNumber = request.get("vehicleRegNumber");
+        if (parkingType == null || !isValidVehicleRegNumber(vehicleRegNumber)) {
+            return Response.error(400, "vehicleType must be CAR or BIKE and vehicleRegNumber must be up to 10 letters, digits, spaces or hyphens");
+        }
+        EntryResult result = parkingService.enter(parkingType, vehicleRegNumber, Instant.now());
+        if (!result.isParked()) {
+            return Response.error(409, "No " + parkingType + " parking spot available");
+        }
+        Ticket ticket = result.getTicket();
+        StringBuilder json = new StringBuilder("{\"vehicleRegNumber\":");
+        JsonUtil.appendString(json, ticket.getVehicleRegNumber());
+        json.append(",\"vehicleType\":\"").append(parkingType).append('"');
+        json.append(",\"parkingNumber\":").append(ticket.getParkingSpot().getId());
+        json.append(",\"inTime\":\"").append(ticket.getInTime().toInstant()).append("\"}");
+        return new Response(201, json.toString());
+    }
+
+    private Response handleExit(HttpExchange exchange) throws Exception {
+        if (!exchange.getRequestURI().getPath().equals("/exits")) {
+            return Response.error(404, "Not found");
+        }
+        Map<String, String> request = JsonUtil.parseObject(readBody(exchange));
+        String vehicleRegNumber = request.get("vehicleRegNumber");
+        if (isBlank(vehicleRegNumber)) {
+            return Response.error(400, "vehicleRegNumber must be set");
+        }
+        ExitResult result = parkingService.exit(vehicleRegNumber, Instant.now());
+        if (result.getStatus() == ExitResult.Status.NO_OPEN_TICKET) {
+            return Response.error(404, "No open ticket for this vehicle");
+        }
+        if (!result.isExited()) {
+            return Response.error(500, "Unable to close the ticket");
+        }
+        Ticket ticket = result.getTicket();
+        StringBuilder json = new StringBuilder("{\"vehicleRegNumber\":");
+        JsonUtil.appendString(json, ticket.getVehicleRegNumber());
+        json.append(",\"parkingNumber\":").append(ticket.getParkingSpot().getId());
+        json.append(",\"price\":").append(ticket.getPrice());
+        json.append(",\"inTime\":\"").append(ticket.getInTime().toInstant());
+        json.append("\",\"outTime\":\"").append(ticket.getOutTime().toInstant()).append("\"}");
+        return new Response(200, json.toString());
+    }
+
+    private Response handleAvailability(HttpExchange exchange) throws Exception {
+        readBody(exchange);
+        String type = exchange.getRequestURI().getPath().substring("/availability/".length());
+        ParkingType parkingType = parseVehicleType(type);
+        if (parkingType == null) {
+            return Response.error(404, "Unknown vehicle type");
+        }
+        int available = parkingSpotDAO.getAvailableSlotCount(parkingType);
+        if (available < 0) {
+            return Response.error(503, "Availability cannot be read");
+        }
+        return new Response(200, "{\"vehicleType\":\"" + parkingType + "\",\"available\":" + available + "}");
+    }
+
+    private static ParkingType parseVehicleType(String vehicleType) {
+        if ("CAR".equalsIgnoreCase(vehicleType)) {
+            return ParkingType.CAR;
+        }
+        if ("BIKE".equalsIgnoreCase(vehicleType)) {
+            return ParkingType.BIKE;
+        }
+        return null;
+    }
+
+    private static boolean isValidVehicleRegNumber(String vehicleRegNumber) {
+        return !isBlank(vehicleRegNumber) && VEHICLE_REG_NUMBER.matcher(vehicleRegNumber).matches();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Reads the whole body, which also lets the connection be reused for the next request.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_REQUEST_BODY_SIZE) {
+                    throw new IllegalArgumentException("Request body too large");
+                }
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            Response response;
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    response = Response.error(405, "Method not allowed");
+                } else {
+                    response = endpoint.handle(exchange);
+                }
+            } catch (IllegalArgumentException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error handling {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                response = Response.error(500, "Internal error");
+            }
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        };
+    }
+
+    /**
+     * Stops accepting requests, waits briefly for those in progress, then stops the worker threads.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(HttpExchange exchange) throws Exception;
+    }
+
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, JsonUtil.appendString(new StringBuilder("{\"error\":"), message).append('}').toString());
+        }
+    }
+}
@@ -1,70 +1,228 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.ParkingSpotAvailabilityIndex;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.GateEvent;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 
+/**
+ * Processes vehicles entering and leaving the parking. A single instance can serve several gates at once:
+ * each gate passes its own input and output, and spots and tickets are claimed and saved in per-call transactions.
+ */
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
     private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
-    private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private  TicketDAO ticketDAO;
+    private static final Timer enterTimer = MetricsRegistry.getDefault().timer("ParkingService.enter");
+    private static final Timer exitTimer = MetricsRegistry.getDefault().timer("ParkingService.exit");
+    // Entries and exits by outcome, e.g. ParkingService.enter.FULL
+    private static final Counter[] entryCounters = countersByStatus("ParkingService.enter.", EntryResult.Status.values());
+    private static final Counter[] exitCounters = countersByStatus("ParkingService.exit.", ExitResult.Status.values());
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    private final InputReaderUtil inputReaderUtil;
+    private final ParkingSpotStore parkingSpotDAO;
+    private final TicketStore ticketDAO;
+    private final GateEventJournal gateEventJournal;
+
+    // Receives an event for every committed entry, fare and exit; null to publish nothing
+    private volatile ParkingEventBus eventBus;
+
+    /**
+     * Creates a service keeping spots and tickets in the given stores: the database DAOs, or the in-memory stores.
+     */
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, null);
+    }
+
+    /**
+     * Creates a service recording entries and exits in the gate journal instead of the database, which a
+     * {@link GateEventReplayer} applies later. Spots are allocated from the store's availability index, which must be loaded.
+     */
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO, GateEventJournal gateEventJournal){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.gateEventJournal = gateEventJournal;
     }
 
+    /**
+     * Sets the bus receiving an event for every committed entry, fare and exit, or null to publish nothing.
+     * Gates already running pick it up from their next entry or exit.
+     */
+    public void setEventBus(ParkingEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    private static Counter[] countersByStatus(String prefix, Enum<?>[] statuses) {
+        Counter[] counters = new Counter[statuses.length];
+        for (Enum<?> status : statuses) {
+            counters[status.ordinal()] = MetricsRegistry.getDefault().counter(prefix + status.name());
+        }
+        return counters;
+    }
+
+    /**
+     * Processes an incoming vehicle from the console.
+     */
     public void processIncomingVehicle() {
-        System.out.println("Welcome !");
+        processIncomingVehicle(inputReaderUtil, System.out);
+    }
+
+    /**
+     * Reads the vehicle type and registration number, then allocates a spot and saves the ticket in a single transaction.
+     *
+     * @param inputReaderUtil the gate's input.
+     * @param out             the gate's output.
+     */
+    public void processIncomingVehicle(InputReaderUtil inputReaderUtil, PrintStream out) {
+        out.println("Welcome !");
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+            ParkingType parkingType;
+            try{
+                parkingType = getVehichleType(inputReaderUtil, out);
+            }catch(IllegalArgumentException ie){
+                logger.error("Error parsing user input for type of vehicle", ie);
+                return;
+            }
+            String vehicleRegNumber = getVehichleRegNumber(inputReaderUtil, out);
+            EntryResult result = enter(parkingType, vehicleRegNumber, Instant.now());
+            if(result.isParked()){
+                Ticket ticket = result.getTicket();
+                out.println(gateEventJournal == null ? "Generated Ticket and saved in DB" : "Generated Ticket and saved in the gate journal");
+                out.println("Please park your vehicle in spot number:"+ticket.getParkingSpot().getId());
+                out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+ticket.getInTime());
             }
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
     }
 
-    private String getVehichleRegNumber() throws Exception {
-        System.out.println("Please type the vehicle registration number and press enter key");
+    /**
+     * Allocates a spot and saves the ticket of a vehicle entering at the given time, in a single transaction.
+     * Unlike {@link #processIncomingVehicle()} it neither reads input nor prints, so batch, network and load-test
+     * drivers can call it directly.
+     *
+     * @return the parked ticket, or FULL if no spot of the type is free.
+     * @throws Exception if the ticket cannot be saved or journaled, in which case the claimed spot is handed back.
+     */
+    public EntryResult enter(ParkingType parkingType, String vehicleRegNumber, Instant inTime) throws Exception {
+        long start = enterTimer.start();
+        try {
+            EntryResult result = gateEventJournal != null
+                    ? journalIncomingVehicle(parkingType, vehicleRegNumber, Date.from(inTime))
+                    : saveIncomingVehicle(parkingType, vehicleRegNumber, inTime);
+            entryCounters[result.getStatus().ordinal()].increment();
+            return result;
+        } finally {
+            enterTimer.stop(start);
+        }
+    }
+
+    private EntryResult saveIncomingVehicle(ParkingType parkingType, String vehicleRegNumber, Instant inTime) throws Exception {
+        try(UnitOfWork unitOfWork = UnitOfWork.begin()){
+            ParkingSpot parkingSpot = claimNextParkingSpot(parkingType);//allot a parking space, already marked as unavailable
+            if(parkingSpot == null || parkingSpot.getId() <= 0){
+                return EntryResult.full();
+            }
+            Ticket ticket = new Ticket();
+            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+            //ticket.setId(ticketID);
+            // Set before the ticket is saved and its event built, as the event copies the site
+            parkingSpot.setSiteId(ticketDAO.getSiteId());
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setSiteId(ticketDAO.getSiteId());
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTime(Date.from(inTime));
+            ticket.setOutTime(null);
+            ticket.setIdempotencyKey(UUID.randomUUID().toString());
+            if(!ticketDAO.saveTicket(ticket)){
+                // Closing the unit of work uncommitted hands the claimed spot back
+                throw new SQLException("Unable to save ticket for " + vehicleRegNumber);
+            }
+            publishOnCommit(ParkingEvent.Type.ENTRY, ticket, false);
+            unitOfWork.commit();
+            return EntryResult.parked(ticket);
+        }
+    }
+
+    private EntryResult journalIncomingVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) throws Exception {
+        ParkingSpotAvailabilityIndex availabilityIndex = parkingSpotDAO.getAvailabilityIndex();
+        if (availabilityIndex == null) {
+            throw new IllegalStateException("The gate journal needs the parking spot availability index");
+        }
+        int parkingNumber = availabilityIndex.claim(parkingType);
+        if (parkingNumber <= 0) {
+            logger.error("Error claiming parking number. Parking slots might be full");
+            return EntryResult.full();
+        }
+        GateEvent entry = new GateEvent(GateEvent.Type.ENTRY, UUID.randomUUID().toString(), 0, vehicleRegNumber,
+                parkingType, parkingNumber, inTime.getTime(), 0);
+        try {
+            gateEventJournal.awaitDurable(gateEventJournal.append(entry));
+        } catch (Exception e) {
+            availabilityIndex.setAvailable(parkingType, parkingNumber, true);
+            throw e;
+        }
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+        parkingSpot.setSiteId(ticketDAO.getSiteId());
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setSiteId(ticketDAO.getSiteId());
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(inTime);
+        ticket.setIdempotencyKey(entry.getIdempotencyKey());
+        publishOnCommit(ParkingEvent.Type.ENTRY, ticket, false);
+        return EntryResult.parked(ticket);
+    }
+
+    /**
+     * Publishes an event once the unit of work open on this thread commits, or right away if none is open,
+     * so subscribers never hear of an entry or exit that was rolled back.
+     */
+    private void publishOnCommit(ParkingEvent.Type type, Ticket ticket, boolean discount){
+        ParkingEventBus bus = eventBus;
+        if (bus != null) {
+            UnitOfWork.runAfterCommit(() -> bus.publish(type, ticket, discount));
+        }
+    }
+
+    private String getVehichleRegNumber(InputReaderUtil inputReaderUtil, PrintStream out) throws Exception {
+        out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
     }
 
+    /**
+     * Reads the vehicle type and looks up the next free spot for it, without reserving it.
+     */
     public ParkingSpot getNextParkingNumberIfAvailable(){
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
-            ParkingType parkingType = getVehichleType();
+            ParkingType parkingType = getVehichleType(inputReaderUtil, System.out);
             parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
             if(parkingNumber > 0){
                 parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
@@ -79,10 +237,19 @@ public class ParkingService {
         return parkingSpot;
     }
 
-    private ParkingType getVehichleType(){
-        System.out.println("Please select vehicle type from menu");
-        System.out.println("1 CAR");
-        System.out.println("2 BIKE");
+    private ParkingSpot claimNextParkingSpot(ParkingType parkingType){
+        int parkingNumber = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+        if(parkingNumber > 0){
+            return new ParkingSpot(parkingNumber, parkingType, false);
+        }
+        logger.error("Error claiming parking number from DB. Parking slots might be full");
+        return null;
+    }
+
+    private ParkingType getVehichleType(InputReaderUtil inputReaderUtil, PrintStream out){
+        out.println("Please select vehicle type from menu");
+        out.println("1 CAR");
+        out.println("2 BIKE");
         int input = inputReaderUtil.readSelection();
         switch(input){
             case 1: {
@@ -92,34 +259,122 @@ public class ParkingService {
                 return ParkingType.BIKE;
             }
             default: {
-                System.out.println("Incorrect input provided");
+                out.println("Incorrect input provided");
                 throw new IllegalArgumentException("Entered input is invalid");
             }
         }
     }
 
+    /**
+     * Processes an exiting vehicle from the console.
+     */
     public void processExitingVehicle() {
+        processExitingVehicle(inputReaderUtil, System.out);
+    }
+
+    /**
+     * Reads the vehicle registration number, then prices and closes its ticket and frees its spot in a single transaction.
+     *
+     * @param inputReaderUtil the gate's input.
+     * @param out             the gate's output.
+     */
+    public void processExitingVehicle(InputReaderUtil inputReaderUtil, PrintStream out) {
         try{
-            String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            if (ticketDAO.getNbTicket(vehicleRegNumber)){
-                fareCalculatorService.calculateFare(ticket,true);
-            } else {
-                fareCalculatorService.calculateFare(ticket);
-            }
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+            String vehicleRegNumber = getVehichleRegNumber(inputReaderUtil, out);
+            ExitResult result = exit(vehicleRegNumber, Instant.now());
+            if(result.isExited()) {
+                Ticket ticket = result.getTicket();
+                out.println("Please pay the parking fare:" + ticket.getPrice());
+                out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
+            }else if(result.getStatus() == ExitResult.Status.NO_OPEN_TICKET){
+                out.println("No open ticket found for vehicle number:" + vehicleRegNumber);
             }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+                out.println("Unable to update ticket information. Error occurred");
             }
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
         }
     }
+
+    /**
+     * Prices and closes the ticket of a vehicle leaving at the given time and frees its spot in a single transaction.
+     * Like {@link #enter(ParkingType, String, Instant)} it neither reads input nor prints.
+     *
+     * @return the closed ticket, NO_OPEN_TICKET if the vehicle is not parked, or UPDATE_FAILED if the ticket or its
+     * spot could not be updated, in which case neither is changed.
+     * @throws Exception if the ticket cannot be read or priced.
+     */
+    public ExitResult exit(String vehicleRegNumber, Instant outTime) throws Exception {
+        long start = exitTimer.start();
+        try {
+            ExitResult result = gateEventJournal != null
+                    ? journalExitingVehicle(vehicleRegNumber, Date.from(outTime))
+                    : saveExitingVehicle(vehicleRegNumber, outTime);
+            exitCounters[result.getStatus().ordinal()].increment();
+            return result;
+        } finally {
+            exitTimer.stop(start);
+        }
+    }
+
+    private ExitResult saveExitingVehicle(String vehicleRegNumber, Instant outTime) throws Exception {
+        try(UnitOfWork unitOfWork = UnitOfWork.begin()){
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if (ticket == null || ticket.getOutTime() != null) {
+                return ExitResult.noOpenTicket();
+            }
+            ticket.setOutTime(Date.from(outTime));
+            boolean discount = ticketDAO.getNbTicket(vehicleRegNumber);
+            fareCalculatorService.calculateFare(ticket, discount);
+            if(!ticketDAO.updateTicket(ticket)) {
+                return ExitResult.updateFailed();
+            }
+            // The ticket's spot may be shared with other tickets, so it is replaced rather than modified
+            ParkingSpot parkingSpot = new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), true);
+            parkingSpot.setSiteId(ticket.getParkingSpot().getSiteId());
+            ticket.setParkingSpot(parkingSpot);
+            if(!parkingSpotDAO.updateParking(parkingSpot)) {
+                return ExitResult.updateFailed();
+            }
+            publishOnCommit(ParkingEvent.Type.FARE, ticket, discount);
+            publishOnCommit(ParkingEvent.Type.EXIT, ticket, discount);
+            unitOfWork.commit();
+            return ExitResult.exited(ticket);
+        }
+    }
+
+    /**
+     * Prices the vehicle's ticket, which is either an entry still in the journal or an open ticket in the database,
+     * and journals its exit.
+     */
+    private ExitResult journalExitingVehicle(String vehicleRegNumber, Date outTime) throws Exception {
+        Ticket ticket;
+        GateEvent entry = gateEventJournal.getPendingEntry(vehicleRegNumber);
+        if (entry != null) {
+            ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(entry.getParkingNumber(), entry.getParkingType(), false));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setInTime(new Date(entry.getTime()));
+            ticket.setIdempotencyKey(entry.getIdempotencyKey());
+        } else {
+            ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if (ticket == null || ticket.getOutTime() != null) {
+                return ExitResult.noOpenTicket();
+            }
+        }
+        ticket.setOutTime(outTime);
+        boolean discount = ticketDAO.getNbTicket(vehicleRegNumber);
+        fareCalculatorService.calculateFare(ticket, discount);
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        GateEvent exit = new GateEvent(GateEvent.Type.EXIT, ticket.getIdempotencyKey(), ticket.getId(), vehicleRegNumber,
+                parkingSpot.getParkingType(), parkingSpot.getId(), outTime.getTime(), ticket.getPrice());
+        gateEventJournal.awaitDurable(gateEventJournal.append(exit));
+        ParkingSpotAvailabilityIndex availabilityIndex = parkingSpotDAO.getAvailabilityIndex();
+        if (availabilityIndex != null && availabilityIndex.contains(parkingSpot.getId())) {
+            availabilityIndex.setAvailable(parkingSpot.getParkingType(), parkingSpot.getId(), true);
+        }
+        publishOnCommit(ParkingEvent.Type.FARE, ticket, discount);
+        publishOnCommit(ParkingEvent.Type.EXIT, ticket, discount);
+        return ExitResult.exited(ticket);
+    }
 }
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.RevenueAggregator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists a {@link RevenueAggregator} to a snapshot file on a fixed schedule and on close, and restores it on start,
+ * so a restart only loses the tickets closed since the last snapshot.
+ */
+public class RevenueSnapshotWriter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("RevenueSnapshotWriter");
+
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private final RevenueAggregator revenueAggregator;
+    private final Path file;
+    private final long intervalSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    public RevenueSnapshotWriter(RevenueAggregator revenueAggregator, Path file, long intervalSeconds) {
+        this.revenueAggregator = revenueAggregator;
+        this.file = file;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revenue-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the last snapshot, if any, then writes a new one every interval in the background.
+     *
+     * @return false if the last snapshot could not be read; the aggregator then starts from the tickets closed from now on.
+     */
+    public boolean start() {
+        boolean restored = true;
+        if (Files.exists(file)) {
+            try {
+                revenueAggregator.readSnapshot(file);
+            } catch (Exception e) {
+                logger.error("Unable to read the revenue snapshot {}", file, e);
+                restored = false;
+            }
+        }
+        scheduler.scheduleWithFixedDelay(this::write, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return restored;
+    }
+
+    /**
+     * Writes a snapshot now.
+     *
+     * @return false if it could not be written; the previous snapshot is then left as it was.
+     */
+    public synchronized boolean write() {
+        try {
+            revenueAggregator.writeSnapshot(file);
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to write the revenue snapshot {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the schedule and writes a last snapshot.
+     */
+    @Override
+    public void close() {
+        // Not interrupted: a snapshot being written is let finish, as an interrupt would close its file
+        scheduler.shutdown();
+        write();
+    }
+}
@@ -0,0 +1,175 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.ShardMap;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotCache;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Routes entries, exits and DAO calls to the database of the site they are for, as given by a {@link ShardMap}.
+ * Each site gets its own DAOs and service, so the in-memory state kept by the DAOs (availability index,
+ * active tickets, spot cache) never mixes spots or plates of different garages.
+ * Tickets and spots handed out carry their site id.
+ */
+public class SiteRouter {
+
+    private static final Logger logger = LogManager.getLogger("SiteRouter");
+
+    private static class Site {
+        private final ParkingSpotDAO parkingSpotDAO;
+        private final TicketDAO ticketDAO;
+        private final ParkingService parkingService;
+
+        private Site(String siteId, DataBaseConfig dataBaseConfig) {
+            parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+            ticketDAO.siteId = siteId;
+            ticketDAO.parkingSpotCache = new ParkingSpotCache(siteId);
+            parkingSpotDAO.parkingSpotCache = ticketDAO.parkingSpotCache;
+            parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        }
+    }
+
+    private final ShardMap shardMap;
+    private final Map<String, Site> sites = new LinkedHashMap<>();
+
+    /**
+     * Creates the DAOs of every site of the shard map. Sites added to the map afterwards are not served.
+     */
+    public SiteRouter(ShardMap shardMap) {
+        this.shardMap = shardMap;
+        for (String siteId : shardMap.getSiteIds()) {
+            sites.put(siteId, new Site(siteId, shardMap.getDataBaseConfig(siteId)));
+        }
+    }
+
+    public ShardMap getShardMap() {
+        return shardMap;
+    }
+
+    /**
+     * Brings the schema of every site database up to date.
+     *
+     * @throws SQLException if a site database cannot be migrated; the sites before it are migrated.
+     */
+    public void migrateAll() throws SQLException {
+        for (String siteId : sites.keySet()) {
+            int applied = new SchemaMigrator(shardMap.getDataBaseConfig(siteId)).migrate();
+            logger.info("Applied {} schema migrations to site {}", applied, siteId);
+        }
+    }
+
+    /**
+     * Loads the availability index and spot cache of every site, so each site allocates spots from memory.
+     *
+     * @return true if every site was loaded.
+     */
+    public boolean loadAvailabilityIndexes() {
+        boolean loaded = true;
+        for (Site site : sites.values()) {
+            loaded &= site.parkingSpotDAO.loadAvailabilityIndex();
+        }
+        return loaded;
+    }
+
+    private Site getSite(String siteId) {
+        Site site = sites.get(siteId);
+        if (site == null) {
+            throw new IllegalArgumentException("Unknown site: " + siteId);
+        }
+        return site;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the site is not served.
+     */
+    public ParkingSpotDAO getParkingSpotDAO(String siteId) {
+        return getSite(siteId).parkingSpotDAO;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the site is not served.
+     */
+    public TicketDAO getTicketDAO(String siteId) {
+        return getSite(siteId).ticketDAO;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the site is not served.
+     */
+    public ParkingService getParkingService(String siteId) {
+        return getSite(siteId).parkingService;
+    }
+
+    /**
+     * Parks a vehicle at the given site, see {@link ParkingService#enter(ParkingType, String, Instant)}.
+     */
+    public EntryResult enter(String siteId, ParkingType parkingType, String vehicleRegNumber, Instant inTime) throws Exception {
+        return getParkingService(siteId).enter(parkingType, vehicleRegNumber, inTime);
+    }
+
+    /**
+     * Lets a vehicle out of the given site, see {@link ParkingService#exit(String, Instant)}.
+     */
+    public ExitResult exit(String siteId, String vehicleRegNumber, Instant outTime) throws Exception {
+        return getParkingService(siteId).exit(vehicleRegNumber, outTime);
+    }
+
+    /**
+     * Counts the free spots of a type at the given site.
+     */
+    public int getAvailableSlotCount(String siteId, ParkingType parkingType) {
+        return getParkingSpotDAO(siteId).getAvailableSlotCount(parkingType);
+    }
+
+    /**
+     * Saves a ticket in the database of its site.
+     *
+     * @throws IllegalArgumentException if the ticket's site is not served.
+     */
+    public boolean saveTicket(Ticket ticket) {
+        return getTicketDAO(ticket.getSiteId()).saveTicket(ticket);
+    }
+
+    /**
+     * Updates a ticket in the database of its site.
+     *
+     * @throws IllegalArgumentException if the ticket's site is not served.
+     */
+    public boolean updateTicket(Ticket ticket) {
+        return getTicketDAO(ticket.getSiteId()).updateTicket(ticket);
+    }
+
+    /**
+     * Returns the ticket of a vehicle at the given site, see {@link TicketDAO#getTicket(String)}.
+     */
+    public Ticket getTicket(String siteId, String vehicleRegNumber) {
+        return getTicketDAO(siteId).getTicket(vehicleRegNumber);
+    }
+
+    /**
+     * Updates the availability of a spot in the database of its site.
+     *
+     * @throws IllegalArgumentException if the spot's site is not served.
+     */
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        return getParkingSpotDAO(parkingSpot.getSiteId()).updateParking(parkingSpot);
+    }
+}
@@ -3,20 +3,53 @@ package com.parkit.parkingsystem.util;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 public class InputReaderUtil {
 
-    private static Scanner scan = new Scanner(System.in);
+    private static final Scanner console = new Scanner(System.in);
     private static final Logger logger = LogManager.getLogger("InputReaderUtil");
 
+    private final Scanner scan;
+    private final PrintStream out;
+
+    /**
+     * Reads from the console.
+     */
+    public InputReaderUtil() {
+        this.scan = console;
+        this.out = System.out;
+    }
+
+    /**
+     * Reads from a gate session.
+     *
+     * @param out where to tell the gate that its input is invalid.
+     */
+    public InputReaderUtil(InputStream in, PrintStream out) {
+        this.scan = new Scanner(in, StandardCharsets.UTF_8.name());
+        this.out = out;
+    }
+
+    /**
+     * Waits for the next line of input.
+     *
+     * @return false once the input is closed.
+     */
+    public boolean hasInput() {
+        return scan.hasNextLine();
+    }
+
     public int readSelection() {
         try {
             int input = Integer.parseInt(scan.nextLine());
             return input;
         }catch(Exception e){
             logger.error("Error while reading user input from Shell", e);
-            System.out.println("Error reading input. Please enter valid number for proceeding further");
+            out.println("Error reading input. Please enter valid number for proceeding further");
             return -1;
         }
     }
@@ -30,7 +63,7 @@ public class InputReaderUtil {
             return vehicleRegNumber;
         }catch(Exception e){
             logger.error("Error while reading user input from Shell", e);
-            System.out.println("Error reading input. Please enter a valid string for vehicle registration number");
+            out.println("Error reading input. Please enter a valid string for vehicle registration number");
             throw e;
         }
     }
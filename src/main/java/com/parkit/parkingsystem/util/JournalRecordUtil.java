@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Frames the records of the append-only journals: each record is its length, the payload and a CRC32 of the payload,
+ * so a reader can tell a complete record from one cut short by a crash.
+ */
+public class JournalRecordUtil {
+
+    private static final int LENGTH_SIZE = 4;
+    private static final int CRC_SIZE = 4;
+
+    private JournalRecordUtil() {
+    }
+
+    /**
+     * Clears the buffer and leaves room for the length, so the payload can be put right after.
+     */
+    public static void beginRecord(ByteBuffer record) {
+        record.clear();
+        record.position(LENGTH_SIZE);
+    }
+
+    /**
+     * Completes the record started by {@link #beginRecord(ByteBuffer)} with its length and CRC, and flips the buffer
+     * for writing.
+     */
+    public static void endRecord(ByteBuffer record, CRC32 crc) {
+        int length = record.position() - LENGTH_SIZE;
+        record.putInt(0, length);
+        crc.reset();
+        crc.update(record.array(), LENGTH_SIZE, length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+    }
+
+    /**
+     * Reads the record at the buffer's position and moves past it.
+     *
+     * @return the payload, or null, leaving the position unchanged, if no complete record with a matching CRC is there.
+     */
+    public static ByteBuffer readRecord(ByteBuffer buffer, int maxRecordSize) {
+        if (buffer.remaining() < LENGTH_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        if (length <= 0 || length > maxRecordSize || buffer.remaining() < length + CRC_SIZE) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer payload = buffer.slice();
+        payload.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        buffer.position(buffer.position() + length);
+        if (buffer.getInt() != (int) crc.getValue()) {
+            buffer.position(start);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * Puts a string as its UTF-8 length and bytes, -1 standing for null.
+     */
+    public static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
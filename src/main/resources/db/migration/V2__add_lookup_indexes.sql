@@ -0,0 +1,5 @@
+/* Ticket lookups filter on the plate, open tickets on OUT_TIME, and sort on IN_TIME */
+create index TICKET_VEHICLE_OUT_IN_IDX on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME);
+
+/* Spot allocation filters on type and availability and takes the lowest number */
+create index PARKING_TYPE_AVAILABLE_IDX on parking(TYPE, AVAILABLE, PARKING_NUMBER);
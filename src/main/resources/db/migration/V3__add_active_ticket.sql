@@ -0,0 +1,9 @@
+/* Open ticket of each vehicle currently parked, so exits find it without going through the plate's history */
+create table active_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL);
+
+create index ACTIVE_TICKET_TICKET_ID_IDX on active_ticket(TICKET_ID);
+
+insert into active_ticket(VEHICLE_REG_NUMBER, TICKET_ID)
+select VEHICLE_REG_NUMBER, max(ID) from ticket where OUT_TIME is null group by VEHICLE_REG_NUMBER;
@@ -0,0 +1,4 @@
+/* Sequence number of the last journaled ticket saved by the write-behind mode, per journal file */
+create table write_behind_checkpoint(
+ JOURNAL varchar(100) PRIMARY KEY,
+ SEQUENCE bigint NOT NULL);
@@ -0,0 +1,4 @@
+/* Key identifying a visit across retries, so replaying a gate journal never creates a ticket twice */
+alter table ticket add column IDEMPOTENCY_KEY varchar(36);
+
+create unique index TICKET_IDEMPOTENCY_KEY_IDX on ticket(IDEMPOTENCY_KEY);
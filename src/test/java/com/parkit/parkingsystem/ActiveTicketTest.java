@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class ActiveTicketTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("activeTicketTest");
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+    }
+
+    private Ticket saveTicket(String vehicleRegNumber, long inTime, Long outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(outTime == null ? null : new Date(outTime));
+        ticketDAO.saveTicket(ticket);
+        return ticket;
+    }
+
+    private void execute(String sql) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try {
+            con.createStatement().execute(sql);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Test case for fetching the ticket of a vehicle with a long history.
+     * This test checks that the open ticket is returned, not one of the closed visits.
+     */
+    @Test
+    void openTicketIsFoundAmongClosedOnes() {
+        long now = System.currentTimeMillis();
+        for (int i = 50; i > 0; i--) {
+            saveTicket("ABCDEF", now - i * 3600 * 1000, now - i * 3600 * 1000 + 60 * 1000L);
+        }
+        Ticket openTicket = saveTicket("ABCDEF", now, null);
+
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+
+        // Assertions to check that the open ticket was returned
+        assertNotNull(ticket);
+        assertEquals(openTicket.getId(), ticket.getId());
+        assertNull(ticket.getOutTime());
+        assertEquals(ParkingType.CAR, ticket.getParkingSpot().getParkingType());
+    }
+
+    /**
+     * Test case for fetching the ticket of a vehicle that has left.
+     * This test checks that once the ticket is closed the lookup falls back to the latest ticket.
+     */
+    @Test
+    void closedTicketFallsBackToLatest() {
+        long now = System.currentTimeMillis();
+        saveTicket("ABCDEF", now - 7200 * 1000, now - 3600 * 1000);
+        Ticket openTicket = saveTicket("ABCDEF", now - 60 * 1000, null);
+
+        // Close the open ticket
+        openTicket.setPrice(1.5);
+        openTicket.setOutTime(new Date(now));
+        assertTrue(ticketDAO.updateTicket(openTicket));
+
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+
+        // Assertions to check that the latest, now closed, ticket was returned
+        assertEquals(openTicket.getId(), ticket.getId());
+        assertNotNull(ticket.getOutTime());
+        assertEquals(1.5, ticket.getPrice());
+        assertNull(ticketDAO.getTicket("GHIJKL"));
+    }
+
+    /**
+     * Test case for the in-memory copy of the active tickets.
+     * This test checks that a known open ticket is found without reading the active_ticket table,
+     * and that an entry whose ticket was closed behind the DAO's back is not trusted.
+     */
+    @Test
+    void activeTicketIdIsKeptInMemory() throws Exception {
+        long now = System.currentTimeMillis();
+        Ticket openTicket = saveTicket("ABCDEF", now, null);
+        execute("delete from active_ticket");
+
+        // Assertion to check that the open ticket is still found
+        assertEquals(openTicket.getId(), ticketDAO.getTicket("ABCDEF").getId());
+
+        // Close the ticket directly in the database
+        execute("update ticket set OUT_TIME = current_timestamp where ID = " + openTicket.getId());
+
+        // Assertion to check that the closed ticket is returned through the fallback lookup
+        assertNotNull(ticketDAO.getTicket("ABCDEF").getOutTime());
+    }
+}
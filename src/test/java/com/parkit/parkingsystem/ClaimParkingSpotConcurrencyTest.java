@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+
+public class ClaimParkingSpotConcurrencyTest {
+
+    private static final int GATES = 16;
+    private static final int EXTRA_CAR_SPOTS = 400;
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("claimParkingSpotTest");
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        // Add car spots 6 to 405 on top of the three default ones
+        Connection con = dataBaseTestConfig.getConnection();
+        PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,'CAR')");
+        for (int i = 0; i < EXTRA_CAR_SPOTS; i++) {
+            ps.setInt(1, 6 + i);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseTestConfig.closePreparedStatement(ps);
+        dataBaseTestConfig.closeConnection(con);
+
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+    }
+
+    private List<Integer> claimFromAllGates(boolean inUnitOfWork) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(GATES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int gate = 0; gate < GATES; gate++) {
+            Callable<List<Integer>> claimUntilFull = () -> {
+                List<Integer> claimed = new ArrayList<>();
+                start.await();
+                while (true) {
+                    int parkingNumber;
+                    if (inUnitOfWork) {
+                        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+                            parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+                            unitOfWork.commit();
+                        }
+                    } else {
+                        parkingNumber = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+                    }
+                    if (parkingNumber < 0) {
+                        return claimed;
+                    }
+                    claimed.add(parkingNumber);
+                }
+            };
+            results.add(executor.submit(claimUntilFull));
+        }
+        start.countDown();
+        List<Integer> allClaimed = new ArrayList<>();
+        for (Future<List<Integer>> result : results) {
+            allClaimed.addAll(result.get());
+        }
+        executor.shutdown();
+        return allClaimed;
+    }
+
+    /**
+     * Test case for many gates claiming car spots at the same time in autocommit mode.
+     * This test checks that every car spot is handed out exactly once.
+     */
+    @Test
+    void concurrentClaimsNeverAllocateASpotTwice() throws Exception {
+        // Claim spots from every gate until the car park is full
+        List<Integer> allClaimed = claimFromAllGates(false);
+        Set<Integer> distinct = new HashSet<>(allClaimed);
+
+        // Assertions to check that no spot was handed out twice and that every car spot was handed out
+        assertEquals(allClaimed.size(), distinct.size());
+        assertEquals(3 + EXTRA_CAR_SPOTS, distinct.size());
+        assertFalse(distinct.contains(4));
+        assertFalse(distinct.contains(5));
+        assertEquals(-1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+    }
+
+    /**
+     * Test case for many gates claiming car spots at the same time, each claim in its own unit of work.
+     * This test checks that row locks held until commit do not lead to double allocation either.
+     */
+    @Test
+    void concurrentClaimsInUnitsOfWorkNeverAllocateASpotTwice() throws Exception {
+        // Claim spots from every gate until the car park is full
+        List<Integer> allClaimed = claimFromAllGates(true);
+        Set<Integer> distinct = new HashSet<>(allClaimed);
+
+        // Assertions to check that no spot was handed out twice and that every car spot was handed out
+        assertEquals(allClaimed.size(), distinct.size());
+        assertEquals(3 + EXTRA_CAR_SPOTS, distinct.size());
+    }
+
+    /**
+     * Test case for claiming a spot of a type that has none left.
+     * This test checks that the claim returns -1 without touching other types.
+     */
+    @Test
+    void claimReturnsMinusOneWhenTypeIsFull() {
+        // Claim both bike spots
+        assertEquals(4, parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(5, parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE));
+
+        // Assertions to check that no bike spot is left while car spots are untouched
+        assertEquals(-1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(1, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+}
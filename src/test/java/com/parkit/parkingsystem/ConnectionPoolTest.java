@@ -0,0 +1,171 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool connectionPool;
+
+    @AfterEach
+    private void tearDown() {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    private ConnectionPool createPool(int minIdle, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis) {
+        connectionPool = new ConnectionPool(
+                () -> DriverManager.getConnection("jdbc:h2:mem:connectionPoolTest;DB_CLOSE_DELAY=-1", "sa", ""),
+                minIdle, maxSize, idleTimeoutMillis, borrowTimeoutMillis);
+        return connectionPool;
+    }
+
+    /**
+     * Test case for reusing a released connection.
+     * This test checks that a second borrow gets the same physical connection instead of opening a new one.
+     */
+    @Test
+    void releasedConnectionIsReused() throws SQLException {
+        ConnectionPool pool = createPool(1, 2, 60000, 1000);
+
+        // Borrow a connection and hand it back
+        Connection first = pool.borrowConnection();
+        pool.releaseConnection(first);
+
+        // Borrow again
+        Connection second = pool.borrowConnection();
+
+        // Assertions to check that the connection was reused and only one was ever opened
+        assertSame(first, second);
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+        pool.releaseConnection(second);
+    }
+
+    /**
+     * Test case for borrowing from an exhausted pool.
+     * This test checks that the borrow fails with an SQLException once the borrow timeout expires.
+     */
+    @Test
+    void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool pool = createPool(0, 2, 60000, 50);
+
+        // Lease every connection of the pool
+        Connection first = pool.borrowConnection();
+        Connection second = pool.borrowConnection();
+
+        // Assertions to check that the next borrow times out and is counted
+        assertThrows(SQLException.class, pool::borrowConnection);
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(2, pool.getActiveCount());
+
+        pool.releaseConnection(first);
+        pool.releaseConnection(second);
+    }
+
+    /**
+     * Test case for validation on borrow.
+     * This test checks that an idle connection closed behind the pool's back is replaced by a new one.
+     */
+    @Test
+    void closedIdleConnectionIsReplacedOnBorrow() throws SQLException {
+        ConnectionPool pool = createPool(1, 2, 60000, 1000);
+
+        // Release a connection then break it while it is idle
+        Connection first = pool.borrowConnection();
+        pool.releaseConnection(first);
+        first.close();
+
+        // Borrow again
+        Connection second = pool.borrowConnection();
+
+        // Assertions to check that a fresh, open connection was handed out
+        assertNotSame(first, second);
+        assertFalse(second.isClosed());
+        assertEquals(2, pool.getCreatedCount());
+        pool.releaseConnection(second);
+    }
+
+    /**
+     * Test case for idle eviction.
+     * This test checks that expired idle connections are closed down to the minimum idle size.
+     */
+    @Test
+    void idleConnectionsAreEvictedDownToMinIdle() throws SQLException {
+        ConnectionPool pool = createPool(1, 3, 0, 1000);
+
+        // Lease three connections and release them all
+        Connection first = pool.borrowConnection();
+        Connection second = pool.borrowConnection();
+        Connection third = pool.borrowConnection();
+        pool.releaseConnection(first);
+        pool.releaseConnection(second);
+        pool.releaseConnection(third);
+
+        // Assertions to check that only the minimum idle connection is kept open
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+        assertTrue(first.isClosed());
+        assertTrue(second.isClosed());
+        assertFalse(third.isClosed());
+    }
+
+    /**
+     * Test case for the active and idle metrics.
+     * This test checks that leasing and releasing moves connections between the active and idle counts.
+     */
+    @Test
+    void metricsTrackActiveAndIdleConnections() throws SQLException {
+        ConnectionPool pool = createPool(2, 2, 60000, 1000);
+
+        // Lease two connections
+        Connection first = pool.borrowConnection();
+        Connection second = pool.borrowConnection();
+        assertEquals(2, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+
+        // Release one of them
+        pool.releaseConnection(first);
+
+        // Assertions to check the counts and that wait time was recorded for each borrow
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(pool.getTotalWaitNanos() > 0);
+        assertTrue(pool.getMaxWaitNanos() >= pool.getAverageWaitNanos());
+        pool.releaseConnection(second);
+    }
+
+    /**
+     * Test case for DataBaseConfig handing out pooled connections.
+     * This test checks that closeConnection returns the connection to the shared pool instead of closing it.
+     */
+    @Test
+    void dataBaseConfigReturnsConnectionsToPool() throws Exception {
+        DataBaseConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("connectionPoolConfigTest");
+
+        // Borrow and close a connection through the configuration
+        Connection first = dataBaseConfig.getConnection();
+        dataBaseConfig.closeConnection(first);
+
+        // Borrow through another configuration instance pointing at the same database
+        DataBaseConfig otherConfig = new EmbeddedDataBaseTestConfig("connectionPoolConfigTest");
+        Connection second = otherConfig.getConnection();
+
+        // Assertions to check that both configurations share the pool and the connection was reused
+        assertSame(dataBaseConfig.getConnectionPool(), otherConfig.getConnectionPool());
+        assertSame(first, second);
+        assertFalse(second.isClosed());
+        otherConfig.closeConnection(second);
+    }
+}
@@ -342,4 +342,94 @@ public class FareCalculatorServiceTest {
         // Assertion to check that an IllegalArgumentException is thrown for an illegal parking type
         assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(ticket));
     }
+
+    /**
+     * Test case for the rounding of fares that fall exactly on half a cent.
+     * This test checks that such fares are rounded up, e.g. 32.2 minutes by car is 80.5 cents.
+     */
+    @Test
+    public void calculateFareInCentsRoundsHalfUp() {
+        // Assertions to check the fares of stays priced at exactly half a cent
+        assertEquals(81, fareCalculatorService.calculateFareInCents(1932000, ParkingType.CAR, false));
+        assertEquals(67, fareCalculatorService.calculateFareInCents(2520000, ParkingType.BIKE, true));
+        assertEquals(200, fareCalculatorService.calculateFareInCents(5040000, ParkingType.CAR, true));
+
+        // Assertions to check the free threshold
+        assertEquals(0, fareCalculatorService.calculateFareInCents(30 * 60 * 1000, ParkingType.CAR, false));
+        assertEquals(75, fareCalculatorService.calculateFareInCents(30 * 60 * 1000 + 1, ParkingType.CAR, false));
+    }
+
+    /**
+     * Test case for the fare of stays of every length up to two days.
+     * This test checks the fare in cents against an exact decimal computation of the rate times the duration.
+     */
+    @Test
+    public void calculateFareInCentsMatchesExactDecimal() {
+        for (long durationMillis = 30 * 60 * 1000 + 1; durationMillis < 48 * 60 * 60 * 1000; durationMillis += 997) {
+            for (ParkingType parkingType : new ParkingType[]{ParkingType.CAR, ParkingType.BIKE}) {
+                BigDecimal rate = BigDecimal.valueOf(parkingType == ParkingType.CAR ? Fare.CAR_RATE_PER_HOUR : Fare.BIKE_RATE_PER_HOUR);
+                BigDecimal price = rate.multiply(BigDecimal.valueOf(durationMillis)).divide(BigDecimal.valueOf(60 * 60 * 1000), 10, BigDecimal.ROUND_HALF_UP);
+                BigDecimal discountedPrice = price.multiply(new BigDecimal("0.95"));
+
+                // Assertions to check the fare with and without discount
+                assertEquals(price.setScale(2, BigDecimal.ROUND_HALF_UP).movePointRight(2).longValueExact(),
+                        fareCalculatorService.calculateFareInCents(durationMillis, parkingType, false));
+                assertEquals(discountedPrice.setScale(2, BigDecimal.ROUND_HALF_UP).movePointRight(2).longValueExact(),
+                        fareCalculatorService.calculateFareInCents(durationMillis, parkingType, true));
+            }
+        }
+    }
+
+    /**
+     * Test case for pricing a batch of tickets.
+     * This test checks that the sequential and parallel batch fares match the fares of the tickets priced one by one.
+     */
+    @Test
+    public void calculateFaresMatchesSingleTicketFares() {
+        // Set up a batch of tickets large enough to be split across tasks
+        int batchSize = 300000;
+        long[] inTimes = new long[batchSize];
+        long[] outTimes = new long[batchSize];
+        int[] typeOrdinals = new int[batchSize];
+        boolean[] discounts = new boolean[batchSize];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batchSize; i++) {
+            inTimes[i] = now - i * 1013L;
+            outTimes[i] = now;
+            typeOrdinals[i] = (i % 2 == 0 ? ParkingType.CAR : ParkingType.BIKE).ordinal();
+            discounts[i] = i % 3 == 0;
+        }
+
+        // Price the batch sequentially and in parallel
+        long[] prices = new long[batchSize];
+        long[] parallelPrices = new long[batchSize];
+        fareCalculatorService.calculateFares(inTimes, outTimes, typeOrdinals, discounts, prices);
+        fareCalculatorService.calculateFaresInParallel(inTimes, outTimes, typeOrdinals, discounts, parallelPrices);
+
+        // Assertions to check each fare against the single ticket calculation
+        for (int i = 0; i < batchSize; i++) {
+            long expected = fareCalculatorService.calculateFareInCents(outTimes[i] - inTimes[i], ParkingType.values()[typeOrdinals[i]], discounts[i]);
+            assertEquals(expected, prices[i]);
+            assertEquals(expected, parallelPrices[i]);
+        }
+    }
+
+    /**
+     * Test case for pricing an invalid batch of tickets.
+     * This test checks that mismatched arrays, exit times before entry times and unpriced types are rejected.
+     */
+    @Test
+    public void calculateFaresRejectsInvalidBatch() {
+        long now = System.currentTimeMillis();
+
+        // Assertions to check that each invalid batch results in an IllegalArgumentException
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFares(
+                new long[]{now}, new long[]{now}, new int[]{0}, new boolean[]{false}, new long[2]));
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFares(
+                new long[]{now}, new long[]{now - 1}, new int[]{ParkingType.CAR.ordinal()}, new boolean[]{false}, new long[1]));
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFaresInParallel(
+                new long[]{now}, new long[]{now}, new int[]{ParkingType.TEST.ordinal()}, new boolean[]{false}, new long[1]));
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFares(
+                new long[]{now}, new long[]{now}, new int[]{42}, new boolean[]{false}, new long[1]));
+    }
 }
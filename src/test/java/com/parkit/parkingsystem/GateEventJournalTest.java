@@ -0,0 +1,156 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.model.GateEvent;
+
+public class GateEventJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private Path directory;
+    private GateEventJournal journal;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("gate-journal");
+        journal = new GateEventJournal(directory, SEGMENT_SIZE);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        journal.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static GateEvent entry(int i) {
+        return new GateEvent(GateEvent.Type.ENTRY, "key-" + i, 0, "PLATE" + i, ParkingType.CAR, i, 1000L * i, 0);
+    }
+
+    private void appendEntries(int count) throws IOException {
+        for (int i = 1; i <= count; i++) {
+            journal.awaitDurable(journal.append(entry(i)));
+        }
+    }
+
+    private void reopen() throws IOException {
+        journal.close();
+        journal = new GateEventJournal(directory, SEGMENT_SIZE);
+    }
+
+    /**
+     * Test case for appending more events than fit in one segment.
+     * This test checks that every event is read back in order across the segments, also after reopening the journal.
+     */
+    @Test
+    void appendAndReadAcrossSegments() throws IOException {
+        appendEntries(100);
+        long appendedPosition = journal.getAppendedPosition();
+
+        reopen();
+        List<GateEventJournal.Record> records = journal.read(0, Integer.MAX_VALUE);
+
+        // Assertions to check that the events span several segments and are read back intact
+        assertTrue(appendedPosition > 3 * SEGMENT_SIZE);
+        assertEquals(appendedPosition, journal.getAppendedPosition());
+        assertEquals(100, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            GateEvent event = records.get(i).getEvent();
+            assertEquals(GateEvent.Type.ENTRY, event.getType());
+            assertEquals("key-" + (i + 1), event.getIdempotencyKey());
+            assertEquals("PLATE" + (i + 1), event.getVehicleRegNumber());
+            assertEquals(ParkingType.CAR, event.getParkingType());
+            assertEquals(i + 1, event.getParkingNumber());
+            assertEquals(1000L * (i + 1), event.getTime());
+        }
+        assertEquals(appendedPosition, records.get(99).getPosition());
+    }
+
+    /**
+     * Test case for reopening a journal whose last record was cut by a crash.
+     * This test checks that the torn record is dropped and that appending resumes after the last complete event.
+     */
+    @Test
+    void reopenAfterTornRecord() throws IOException {
+        appendEntries(3);
+        long end = journal.getAppendedPosition();
+        journal.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve("gate-000000000000.journal"), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(60).putLong(42L);
+            torn.flip();
+            channel.write(torn, end);
+        }
+
+        journal = new GateEventJournal(directory, SEGMENT_SIZE);
+        journal.awaitDurable(journal.append(entry(4)));
+        List<GateEventJournal.Record> records = journal.read(0, Integer.MAX_VALUE);
+
+        // Assertions to check that only the complete events are kept
+        assertEquals(4, records.size());
+        assertEquals("key-3", records.get(2).getEvent().getIdempotencyKey());
+        assertEquals("key-4", records.get(3).getEvent().getIdempotencyKey());
+    }
+
+    /**
+     * Test case for marking events as replayed.
+     * This test checks that the replay position survives a reopen, that replayed segments are deleted
+     * and that only the entries not replayed yet stay pending.
+     */
+    @Test
+    void markReplayed() throws IOException {
+        appendEntries(100);
+        journal.append(new GateEvent(GateEvent.Type.EXIT, "key-100", 0, "PLATE100", ParkingType.CAR, 100, 200000L, 1.5));
+        List<GateEventJournal.Record> replayed = journal.read(0, 50);
+        journal.markReplayed(replayed);
+
+        reopen();
+
+        // Assertions to check the replay position and the remaining events
+        assertEquals(replayed.get(49).getPosition(), journal.getReplayPosition());
+        List<GateEventJournal.Record> remaining = journal.read(journal.getReplayPosition(), Integer.MAX_VALUE);
+        assertEquals(51, remaining.size());
+        assertEquals("key-51", remaining.get(0).getEvent().getIdempotencyKey());
+        assertFalse(Files.exists(directory.resolve("gate-000000000000.journal")));
+
+        // Assertions to check the pending entries
+        assertNull(journal.getPendingEntry("PLATE50"));
+        assertEquals("key-51", journal.getPendingEntry("PLATE51").getIdempotencyKey());
+        assertNull(journal.getPendingEntry("PLATE100"));
+    }
+
+    /**
+     * Test case for marking entries as replayed without reopening the journal.
+     * This test checks that a replayed entry stops being pending, while a later entry of the same plate stays pending.
+     */
+    @Test
+    void markReplayedDropsPendingEntries() throws IOException {
+        appendEntries(2);
+        List<GateEventJournal.Record> replayed = journal.read(0, Integer.MAX_VALUE);
+        GateEvent reentry = new GateEvent(GateEvent.Type.ENTRY, "key-3", 0, "PLATE2", ParkingType.CAR, 3, 3000L, 0);
+        journal.awaitDurable(journal.append(reentry));
+
+        journal.markReplayed(replayed);
+
+        // Assertions to check the pending entries
+        assertNull(journal.getPendingEntry("PLATE1"));
+        assertEquals("key-3", journal.getPendingEntry("PLATE2").getIdempotencyKey());
+    }
+}
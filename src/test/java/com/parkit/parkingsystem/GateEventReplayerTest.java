@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventJournal;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateEventReplayer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class GateEventReplayerTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("gateEventReplayerTest");
+    private InputReaderUtil inputReaderUtil;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private Path directory;
+    private GateEventJournal journal;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        inputReaderUtil = mock(InputReaderUtil.class);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        directory = Files.createTempDirectory("gate-journal");
+        journal = new GateEventJournal(directory, 4096);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        journal.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private ParkingService journalingParkingService() {
+        parkingSpotDAO.loadAvailabilityIndex();
+        return new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, journal);
+    }
+
+    private GateEventReplayer replayer() {
+        // The replayer updates the database only: the gate's availability index is already up to date
+        ParkingSpotDAO replayParkingSpotDAO = new ParkingSpotDAO();
+        replayParkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        return new GateEventReplayer(journal, ticketDAO, replayParkingSpotDAO);
+    }
+
+    private int countRows(String sql) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Test case for entries recorded in the gate journal.
+     * This test checks that the database is untouched until the replay, and that replaying the same events
+     * again, as after a crash before the replay position was saved, creates no duplicate tickets.
+     */
+    @Test
+    void replayEntriesOnce() throws Exception {
+        ParkingService parkingService = journalingParkingService();
+        when(inputReaderUtil.readSelection()).thenReturn(1, 2);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF", "GHIJKL");
+        parkingService.processIncomingVehicle();
+        parkingService.processIncomingVehicle();
+
+        // Assertions to check that the entries are only in the journal and the index
+        assertEquals(0, countRows("select count(*) from ticket"));
+        assertFalse(parkingSpotDAO.availabilityIndex.isAvailable(ParkingType.CAR, 1));
+        assertFalse(parkingSpotDAO.availabilityIndex.isAvailable(ParkingType.BIKE, 4));
+
+        assertEquals(2, replayer().replayPending());
+
+        // Assertions to check the replayed tickets and spots
+        assertEquals(2, countRows("select count(*) from ticket"));
+        assertEquals(2, countRows("select count(*) from parking where AVAILABLE = false"));
+        Ticket ticket = ticketDAO.getTicket("GHIJKL");
+        assertEquals(4, ticket.getParkingSpot().getId());
+        assertNotNull(ticket.getIdempotencyKey());
+
+        // Replay everything again, as if the replay position had not been saved
+        journal.close();
+        Files.delete(directory.resolve("replay.position"));
+        journal = new GateEventJournal(directory, 4096);
+        assertEquals(2, replayer().replayPending());
+
+        // Assertions to check that no ticket was duplicated
+        assertEquals(2, countRows("select count(*) from ticket"));
+        assertEquals(0, replayer().replayPending());
+    }
+
+    /**
+     * Test case for a vehicle leaving before its entry reached the database.
+     * This test checks that the exit is priced from the journaled entry and that the replay closes the ticket.
+     */
+    @Test
+    void exitBeforeEntryIsReplayed() throws Exception {
+        ParkingService parkingService = journalingParkingService();
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+
+        // Assertions to check that the spot is free again before the replay
+        assertTrue(parkingSpotDAO.availabilityIndex.isAvailable(ParkingType.CAR, 1));
+        assertNull(journal.getPendingEntry("ABCDEF"));
+
+        assertEquals(2, replayer().replayPending());
+
+        // Assertions to check the closed ticket and the freed spot
+        assertEquals(1, countRows("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(0, countRows("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    /**
+     * Test case for a vehicle that entered before the gate journal was used.
+     * This test checks that its exit is journaled with the ticket id and replayed onto the ticket in the database.
+     */
+    @Test
+    void exitOfTicketInDataBase() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        ticketDAO.saveTicket(ticket);
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+        ParkingService parkingService = journalingParkingService();
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+
+        parkingService.processExitingVehicle();
+        assertEquals(1, replayer().replayPending());
+
+        // Assertions to check that the ticket was priced and closed
+        assertEquals(1, countRows("select count(*) from ticket where OUT_TIME is not null and PRICE = 1.5"));
+        assertEquals(0, countRows("select count(*) from parking where AVAILABLE = false"));
+    }
+}
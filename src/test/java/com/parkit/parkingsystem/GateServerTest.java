@@ -0,0 +1,174 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class GateServerTest {
+
+    private static final int GATES = 3;
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("gateServerTest");
+    private GateServer gateServer;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        gateServer = new GateServer(parkingService, 0, GATES);
+        gateServer.start();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        gateServer.close();
+    }
+
+    private String runGate(String input) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(input.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                received.write(buffer, 0, read);
+            }
+            return new String(received.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private int countRows(String sql) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Test case for gates parking and leaving at the same time.
+     * This test checks that every gate gets its own answers and spot, and that every ticket is closed.
+     */
+    @Test
+    void gatesProcessVehiclesConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(GATES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> outputs = new ArrayList<>();
+        for (int gate = 1; gate <= GATES; gate++) {
+            String vehicleRegNumber = "GATE" + gate;
+            Callable<String> parkAndLeave = () -> {
+                start.await();
+                return runGate("1\n1\n" + vehicleRegNumber + "\n2\n" + vehicleRegNumber + "\n3\n");
+            };
+            outputs.add(executor.submit(parkAndLeave));
+        }
+        start.countDown();
+
+        // Assertions to check each gate's session
+        Set<String> spots = new HashSet<>();
+        Pattern spot = Pattern.compile("Please park your vehicle in spot number:(\\d+)");
+        for (int gate = 1; gate <= GATES; gate++) {
+            String output = outputs.get(gate - 1).get();
+            Matcher matcher = spot.matcher(output);
+            assertTrue(matcher.find(), output);
+            spots.add(matcher.group(1));
+            assertTrue(output.contains("Recorded out-time for vehicle number:GATE" + gate + " "), output);
+            assertTrue(output.endsWith("Closing gate session!\n"), output);
+        }
+        executor.shutdown();
+
+        // Assertions to check the spots and tickets
+        assertEquals(GATES, spots.size());
+        assertEquals(GATES, countRows("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(0, countRows("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    /**
+     * Test case for one more gate connecting while every gate session is taken.
+     * This test checks that the extra gate is told the gates are busy and disconnected instead of waiting.
+     */
+    @Test
+    void extraGateIsTurnedAway() throws Exception {
+        List<Socket> gates = new ArrayList<>();
+        try {
+            for (int gate = 1; gate <= GATES; gate++) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                gates.add(socket);
+                // Wait for the menu, so the session holds its gate
+                while (socket.getInputStream().available() == 0) {
+                    Thread.sleep(10);
+                }
+            }
+
+            // Assertion to check that the extra gate gets the busy message and the end of the connection
+            assertEquals("All gates are busy, please try again later.\n", runGate(""));
+        } finally {
+            for (Socket socket : gates) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Test case for closing the server while a gate is connected.
+     * This test checks that the idle gate is disconnected.
+     */
+    @Test
+    void closeDisconnectsGates() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort())) {
+            InputStream in = socket.getInputStream();
+            // Wait for the menu, then close the server
+            while (in.available() == 0) {
+                Thread.sleep(10);
+            }
+            gateServer.close();
+
+            // Assertion to check that the gate sees the end of the session
+            byte[] buffer = new byte[4096];
+            int read;
+            do {
+                read = in.read(buffer);
+            } while (read > 0);
+            assertEquals(-1, read);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class InMemoryStoreTest {
+
+    private InMemoryParkingSpotStore parkingSpotStore;
+    private InMemoryTicketStore ticketStore;
+    private ParkingService parkingService;
+    private Instant inTime;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        parkingSpotStore = InMemoryParkingSpotStore.withSpots(3, 2);
+        ticketStore = new InMemoryTicketStore();
+        parkingService = new ParkingService(new InputReaderUtil(), parkingSpotStore, ticketStore);
+        inTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(2, ChronoUnit.HOURS);
+    }
+
+    /**
+     * Test case for a car parking three times without a database.
+     * This test checks that spots are allocated and freed and that the third visit gets the frequent user discount.
+     */
+    @Test
+    void visitsAreProcessedInMemory() throws Exception {
+        // Assertions to check the layout of the default parking table
+        assertEquals(ParkingType.CAR, parkingSpotStore.getParkingType(3));
+        assertEquals(ParkingType.BIKE, parkingSpotStore.getParkingType(4));
+        assertEquals(4, parkingService.enter(ParkingType.BIKE, "BIKE1", inTime).getTicket().getParkingSpot().getId());
+
+        double[] prices = new double[3];
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(1, parkingService.enter(ParkingType.CAR, "ABCDEF", inTime).getTicket().getParkingSpot().getId());
+            assertEquals(2, parkingSpotStore.getAvailableSlotCount(ParkingType.CAR));
+            ExitResult exit = parkingService.exit("ABCDEF", inTime.plus(1, ChronoUnit.HOURS));
+            assertTrue(exit.isExited());
+            prices[i] = exit.getTicket().getPrice();
+        }
+
+        // Assertions to check the freed spots, the ticket history and the fares
+        assertEquals(3, parkingSpotStore.getAvailableSlotCount(ParkingType.CAR));
+        assertEquals(3, ticketStore.getTicketCount("ABCDEF"));
+        assertEquals(1.5, prices[0]);
+        assertTrue(prices[2] < prices[0]);
+        assertEquals(ExitResult.Status.NO_OPEN_TICKET, parkingService.exit("ABCDEF", Instant.now()).getStatus());
+    }
+
+    /**
+     * Test case for an entry made in a unit of work that is rolled back.
+     * This test checks that the claimed spot and the saved ticket are undone, as they would be in the database.
+     */
+    @Test
+    void rolledBackEntryIsUndone() throws Exception {
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertTrue(parkingService.enter(ParkingType.CAR, "ABCDEF", inTime).isParked());
+            assertEquals(2, parkingSpotStore.getAvailableSlotCount(ParkingType.CAR));
+        }
+
+        // Assertions to check that nothing of the entry is left
+        assertEquals(3, parkingSpotStore.getAvailableSlotCount(ParkingType.CAR));
+        assertNull(ticketStore.getTicket("ABCDEF"));
+        assertEquals(0, ticketStore.getTicketCount("ABCDEF"));
+        assertEquals(0, ticketStore.size());
+    }
+
+    /**
+     * Test case for changing a ticket read from the store.
+     * This test checks that the stored ticket only changes once it is updated.
+     */
+    @Test
+    void ticketsAreReadAsCopies() throws Exception {
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+
+        Ticket ticket = ticketStore.getTicket("ABCDEF");
+        ticket.setPrice(42);
+
+        // Assertions to check the stored ticket before and after the update
+        assertEquals(0, ticketStore.getTicket("ABCDEF").getPrice());
+        assertTrue(ticketStore.updateTicket(ticket));
+        assertEquals(42, ticketStore.getTicket("ABCDEF").getPrice());
+    }
+}
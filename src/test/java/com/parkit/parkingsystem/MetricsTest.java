@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.MetricsReporter;
+import com.parkit.parkingsystem.metrics.Timer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class MetricsTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("metricsTest");
+    private Path metricsFile;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        metricsFile = Files.createTempFile("metrics", ".log");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(metricsFile);
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.04);
+    }
+
+    /**
+     * Test case for a timer recording 1 to 100000 nanoseconds.
+     * This test checks the count, mean, max and percentiles of its snapshot.
+     */
+    @Test
+    void timerPercentilesAreWithinPrecision() {
+        Timer timer = new Timer();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            timer.record(nanos);
+        }
+
+        Timer.Snapshot snapshot = timer.snapshot();
+
+        // Assertions to check the exact figures and the percentiles to within the histogram's precision
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(50_000, snapshot.getMeanNanos());
+        assertEquals(100_000, snapshot.getMaxNanos());
+        assertWithinPrecision(50_000, snapshot.getPercentileNanos(50));
+        assertWithinPrecision(99_000, snapshot.getPercentileNanos(99));
+        assertWithinPrecision(99_900, snapshot.getPercentileNanos(99.9));
+        assertEquals(0, new Timer().snapshot().getPercentileNanos(99));
+    }
+
+    /**
+     * Test case for two reports of a registry.
+     * This test checks that each report covers its own interval and leaves out idle timers.
+     */
+    @Test
+    void reporterWritesIntervals() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsReporter metricsReporter = new MetricsReporter(registry, metricsFile, 60);
+        registry.timer("test.busy").record(1_000);
+        registry.timer("test.idle").record(2_000);
+        registry.counter("test.events").add(3);
+
+        assertEquals(3, metricsReporter.report());
+        for (int i = 0; i < 4; i++) {
+            registry.timer("test.busy").record(500_000);
+        }
+        registry.counter("test.events").increment();
+        assertEquals(2, metricsReporter.report());
+
+        // Assertions to check the second interval only holds what was recorded after the first report
+        List<String> lines = Files.readAllLines(metricsFile, StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(3).contains(" timer test.busy count=4 mean_us=500.0 "));
+        assertTrue(lines.get(3).endsWith(" max_us=500.0"));
+        assertTrue(lines.get(4).endsWith(" counter test.events count=1 total=4"));
+    }
+
+    /**
+     * Test case for a visit and a DAO call.
+     * This test checks that the service, fare, DAO and connection timers and the outcome counters record them.
+     */
+    @Test
+    void hotPathsAreTimed() throws Exception {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        long enters = registry.timer("ParkingService.enter").snapshot().getCount();
+        long exits = registry.timer("ParkingService.exit").snapshot().getCount();
+        long fares = registry.timer("FareCalculatorService.calculateFare").snapshot().getCount();
+        long parked = registry.counter("ParkingService.enter.PARKED").getCount();
+        long noOpenTicket = registry.counter("ParkingService.exit.NO_OPEN_TICKET").getCount();
+        long counts = registry.timer("TicketDAO.getTicketCount").snapshot().getCount();
+        long connections = registry.timer("DataBaseConfig.getConnection").snapshot().getCount();
+
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), InMemoryParkingSpotStore.withSpots(3, 2), new InMemoryTicketStore());
+        Instant inTime = Instant.now().minus(1, ChronoUnit.HOURS);
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        parkingService.exit("ABCDEF", Instant.now());
+        parkingService.exit("ABCDEF", Instant.now());
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO.getTicketCount("ABCDEF");
+
+        // Assertions to check that every call was recorded once
+        assertEquals(enters + 1, registry.timer("ParkingService.enter").snapshot().getCount());
+        assertEquals(exits + 2, registry.timer("ParkingService.exit").snapshot().getCount());
+        assertEquals(fares + 1, registry.timer("FareCalculatorService.calculateFare").snapshot().getCount());
+        assertEquals(parked + 1, registry.counter("ParkingService.enter.PARKED").getCount());
+        assertEquals(noOpenTicket + 1, registry.counter("ParkingService.exit.NO_OPEN_TICKET").getCount());
+        assertEquals(counts + 1, registry.timer("TicketDAO.getTicketCount").snapshot().getCount());
+        assertEquals(connections + 1, registry.timer("DataBaseConfig.getConnection").snapshot().getCount());
+    }
+}
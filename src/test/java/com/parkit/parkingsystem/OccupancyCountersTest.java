@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class OccupancyCountersTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("occupancyCountersTest");
+    private ParkingSpotDAO parkingSpotDAO;
+    private ParkingService parkingService;
+    private List<String> notifications;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingSpotDAO.occupancyCounters = new OccupancyCounters();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        notifications = new ArrayList<>();
+        parkingSpotDAO.occupancyCounters.addListener((parkingType, available) -> notifications.add(parkingType + "=" + available));
+    }
+
+    /**
+     * Test case for entries and exits once the counters are reconciled.
+     * This test checks that the counts follow each change and that listeners are told the new count.
+     */
+    @Test
+    void countersFollowEntriesAndExits() throws Exception {
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+        notifications.clear();
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF", Instant.now());
+        parkingService.enter(ParkingType.BIKE, "GHIJKL", Instant.now());
+        parkingService.exit("ABCDEF", Instant.now());
+
+        // Assertions to check the counts and the notifications
+        assertEquals(3, parkingSpotDAO.getAvailableSlotCount(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getAvailableSlotCount(ParkingType.BIKE));
+        assertEquals(3, notifications.size());
+        assertEquals("CAR=2", notifications.get(0));
+        assertEquals("BIKE=1", notifications.get(1));
+        assertEquals("CAR=3", notifications.get(2));
+    }
+
+    /**
+     * Test case for a claim rolled back with its unit of work.
+     * This test checks that the spot is only counted as taken once the claim commits.
+     */
+    @Test
+    void rolledBackClaimIsNotCounted() {
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+
+        // Claim a spot without committing
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertEquals(1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        }
+
+        // Assertion to check that the count did not change
+        assertEquals(3, parkingSpotDAO.occupancyCounters.getAvailable(ParkingType.CAR));
+    }
+
+    /**
+     * Test case for spots taken behind the DAO's back.
+     * This test checks that the counters keep their count until reconciled with the parking table.
+     */
+    @Test
+    void reconciliationCorrectsDrift() throws Exception {
+        // Assertion to check that the table is counted until the first reconciliation
+        assertFalse(parkingSpotDAO.occupancyCounters.isReconciled());
+        assertEquals(3, parkingSpotDAO.getAvailableSlotCount(ParkingType.CAR));
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+
+        Connection con = dataBaseTestConfig.getConnection();
+        con.createStatement().execute("update parking set AVAILABLE = false where TYPE = 'CAR'");
+        dataBaseTestConfig.closeConnection(con);
+
+        // Assertion to check that the stale count is served without a query
+        assertEquals(3, parkingSpotDAO.getAvailableSlotCount(ParkingType.CAR));
+
+        // Assertions to check the corrected count and its notification
+        notifications.clear();
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+        assertEquals(0, parkingSpotDAO.getAvailableSlotCount(ParkingType.CAR));
+        assertEquals("CAR=0", notifications.get(0));
+    }
+}
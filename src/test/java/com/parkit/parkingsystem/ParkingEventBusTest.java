@@ -0,0 +1,178 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.event.OccupancySubscriber;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.event.ParkingEventFileSink;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class ParkingEventBusTest {
+
+    private Path eventFile;
+    private Instant inTime;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        eventFile = Files.createTempFile("events", ".jsonl");
+        inTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(1, ChronoUnit.HOURS);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(eventFile);
+    }
+
+    private Ticket ticket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(Date.from(inTime));
+        return ticket;
+    }
+
+    /**
+     * Test case for four threads publishing through a ring much smaller than the events they publish.
+     * This test checks that both subscribers see every event once, in sequence, with each publisher's events in order.
+     */
+    @Test
+    void everySubscriberSeesEveryEventInOrder() throws Exception {
+        int publishers = 4;
+        int eventsPerPublisher = 500;
+        List<List<String>> seen = new ArrayList<>();
+        ParkingEventBus eventBus = new ParkingEventBus(8);
+        for (int s = 0; s < 2; s++) {
+            List<String> events = new ArrayList<>();
+            seen.add(events);
+            eventBus.subscribe("test" + s, (event, endOfBatch) -> {
+                assertEquals(events.size(), event.getSequence());
+                events.add(event.getVehicleRegNumber());
+            });
+        }
+        eventBus.start();
+
+        Thread[] threads = new Thread[publishers];
+        for (int p = 0; p < publishers; p++) {
+            String prefix = "P" + p + "-";
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < eventsPerPublisher; i++) {
+                    assertTrue(eventBus.publish(ParkingEvent.Type.ENTRY, ticket(prefix + i), false));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        eventBus.close();
+
+        // Assertions to check the count and the order of the events of each subscriber
+        assertEquals(publishers * eventsPerPublisher, eventBus.getPublishedCount());
+        assertFalse(eventBus.publish(ParkingEvent.Type.ENTRY, ticket("LATE"), false));
+        for (List<String> events : seen) {
+            assertEquals(publishers * eventsPerPublisher, events.size());
+            for (int p = 0; p < publishers; p++) {
+                int next = 0;
+                for (String vehicleRegNumber : events) {
+                    if (vehicleRegNumber.startsWith("P" + p + "-")) {
+                        assertEquals("P" + p + "-" + next++, vehicleRegNumber);
+                    }
+                }
+                assertEquals(eventsPerPublisher, next);
+            }
+        }
+    }
+
+    /**
+     * Test case for a subscriber stuck on the first event of a full ring.
+     * This test checks that the next publisher waits for it instead of overwriting the event.
+     */
+    @Test
+    void publisherWaitsForSlowSubscriber() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> events = new ArrayList<>();
+        ParkingEventBus eventBus = new ParkingEventBus(4);
+        eventBus.subscribe("slow", (event, endOfBatch) -> {
+            release.await();
+            events.add(event.getVehicleRegNumber());
+        });
+        eventBus.start();
+        for (int i = 0; i < 4; i++) {
+            eventBus.publish(ParkingEvent.Type.ENTRY, ticket("CAR" + i), false);
+        }
+
+        Thread publisher = new Thread(() -> eventBus.publish(ParkingEvent.Type.ENTRY, ticket("CAR4"), false));
+        publisher.start();
+        publisher.join(200);
+
+        // Assertions to check the publisher is held until the subscriber moves on, and that no event is lost
+        assertTrue(publisher.isAlive());
+        release.countDown();
+        publisher.join();
+        eventBus.close();
+        assertEquals(5, events.size());
+        assertEquals("CAR0", events.get(0));
+        assertEquals("CAR4", events.get(4));
+    }
+
+    /**
+     * Test case for visits processed by a service publishing to the bus, one of them rolled back.
+     * This test checks the JSON lines of the file sink and the counters kept by the occupancy subscriber.
+     */
+    @Test
+    void serviceEventsReachSubscribersAfterCommit() throws Exception {
+        OccupancyCounters occupancyCounters = new OccupancyCounters();
+        occupancyCounters.reconcile(ParkingType.CAR, 3);
+        ParkingEventFileSink eventFileSink = new ParkingEventFileSink(eventFile);
+        ParkingEventBus eventBus = new ParkingEventBus(16);
+        eventBus.subscribe("file", eventFileSink);
+        eventBus.subscribe("occupancy", new OccupancySubscriber(occupancyCounters));
+        eventBus.start();
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), InMemoryParkingSpotStore.withSpots(3, 2), new InMemoryTicketStore());
+        parkingService.setEventBus(eventBus);
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        parkingService.exit("ABCDEF", inTime.plus(1, ChronoUnit.HOURS));
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertTrue(parkingService.enter(ParkingType.CAR, "ROLLED", inTime).isParked());
+        }
+        parkingService.enter(ParkingType.CAR, "GHIJKL", inTime);
+        eventBus.close();
+        eventFileSink.close();
+
+        // Assertions to check that the rolled back entry published nothing and the others were published in order
+        List<String> lines = Files.readAllLines(eventFile, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"sequence\":0,\"type\":\"ENTRY\","));
+        assertTrue(lines.get(0).contains("\"vehicleRegNumber\":\"ABCDEF\",\"parkingType\":\"CAR\",\"parkingNumber\":1,"));
+        assertTrue(lines.get(1).startsWith("{\"sequence\":1,\"type\":\"FARE\","));
+        assertTrue(lines.get(1).contains("\"price\":1.5,\"discount\":false}"));
+        assertTrue(lines.get(2).startsWith("{\"sequence\":2,\"type\":\"EXIT\","));
+        assertTrue(lines.get(3).startsWith("{\"sequence\":3,\"type\":\"ENTRY\","));
+        assertTrue(lines.get(3).contains("\"vehicleRegNumber\":\"GHIJKL\""));
+        assertEquals(2, occupancyCounters.getAvailable(ParkingType.CAR));
+    }
+}
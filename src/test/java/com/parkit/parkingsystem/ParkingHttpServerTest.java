@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ParkingHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.JsonUtil;
+
+public class ParkingHttpServerTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("parkingHttpServerTest");
+    private ParkingHttpServer httpServer;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        httpServer = new ParkingHttpServer(parkingService, parkingSpotDAO, 0, 4);
+        httpServer.start();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        httpServer.close();
+    }
+
+    private static class Reply {
+        private final int status;
+        private final Map<String, String> body;
+
+        Reply(int status, Map<String, String> body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Reply send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + httpServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            received.write(buffer, 0, read);
+        }
+        in.close();
+        assertEquals("application/json; charset=utf-8", connection.getHeaderField("Content-Type"));
+        return new Reply(status, JsonUtil.parseObject(new String(received.toByteArray(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Test case for a car parking and leaving through the API.
+     * This test checks the entry, availability and exit answers.
+     */
+    @Test
+    void parkAndLeave() throws Exception {
+        Reply entry = send("POST", "/entries", "{\"vehicleType\": \"CAR\", \"vehicleRegNumber\": \"ABCDEF\"}");
+
+        // Assertions to check the entry
+        assertEquals(201, entry.status);
+        assertEquals("ABCDEF", entry.body.get("vehicleRegNumber"));
+        assertEquals("1", entry.body.get("parkingNumber"));
+        assertNotNull(entry.body.get("inTime"));
+
+        Reply availability = send("GET", "/availability/car", null);
+
+        // Assertions to check the remaining car spots
+        assertEquals(200, availability.status);
+        assertEquals("2", availability.body.get("available"));
+
+        Reply exit = send("POST", "/exits", "{\"vehicleRegNumber\": \"ABCDEF\"}");
+
+        // Assertions to check the exit
+        assertEquals(200, exit.status);
+        assertEquals("0.0", exit.body.get("price"));
+        assertNotNull(exit.body.get("outTime"));
+        assertEquals("3", send("GET", "/availability/CAR", null).body.get("available"));
+    }
+
+    /**
+     * Test case for entries when the parking is full.
+     * This test checks that the API answers with a conflict once every bike spot is taken.
+     */
+    @Test
+    void entryWhenFull() throws Exception {
+        assertEquals(201, send("POST", "/entries", "{\"vehicleType\":\"BIKE\",\"vehicleRegNumber\":\"BIKE1\"}").status);
+        assertEquals(201, send("POST", "/entries", "{\"vehicleType\":\"BIKE\",\"vehicleRegNumber\":\"BIKE2\"}").status);
+
+        Reply full = send("POST", "/entries", "{\"vehicleType\":\"BIKE\",\"vehicleRegNumber\":\"BIKE3\"}");
+
+        // Assertions to check the conflict
+        assertEquals(409, full.status);
+        assertEquals("No BIKE parking spot available", full.body.get("error"));
+        assertEquals("0", send("GET", "/availability/BIKE", null).body.get("available"));
+    }
+
+    /**
+     * Test case for invalid requests.
+     * This test checks the status codes for malformed bodies, unknown types, invalid plates, unknown vehicles and wrong methods.
+     */
+    @Test
+    void invalidRequests() throws Exception {
+        // Assertions to check the answers to each invalid request
+        assertEquals(400, send("POST", "/entries", "{\"vehicleType\":\"TRUCK\",\"vehicleRegNumber\":\"ABCDEF\"}").status);
+        assertEquals(400, send("POST", "/entries", "{\"vehicleType\":\"CAR\"").status);
+        assertEquals(400, send("POST", "/entries", "{\"vehicleType\":\"CAR\",\"vehicleRegNumber\":\"ABCDEFGHIJK\"}").status);
+        assertEquals(400, send("POST", "/entries", "{\"vehicleType\":\"CAR\",\"vehicleRegNumber\":\"AB;CD\"}").status);
+        assertEquals(400, send("POST", "/exits", "{}").status);
+        assertEquals(404, send("POST", "/exits", "{\"vehicleRegNumber\":\"UNKNOWN\"}").status);
+        assertEquals(404, send("GET", "/availability/TRUCK", null).status);
+        assertEquals(405, send("GET", "/entries", null).status);
+
+        // Assertion to check that the rejected plates did not claim a spot
+        assertEquals("3", send("GET", "/availability/CAR", null).body.get("available"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class ParkingServiceEntryExitTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("parkingServiceEntryExitTest");
+    private ParkingService parkingService;
+    private TicketDAO ticketDAO;
+    private Instant inTime;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        inTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(2, ChronoUnit.HOURS);
+    }
+
+    /**
+     * Test case for a car entering and leaving at given times.
+     * This test checks that the times are the ones passed in and that the fare is computed from them.
+     */
+    @Test
+    void enterThenExit() throws Exception {
+        EntryResult entry = parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+
+        // Assertions to check the entry
+        assertEquals(EntryResult.Status.PARKED, entry.getStatus());
+        assertEquals(1, entry.getTicket().getParkingSpot().getId());
+        assertEquals(inTime, entry.getTicket().getInTime().toInstant());
+
+        ExitResult exit = parkingService.exit("ABCDEF", inTime.plus(1, ChronoUnit.HOURS));
+
+        // Assertions to check the exit and the saved ticket
+        assertEquals(ExitResult.Status.EXITED, exit.getStatus());
+        assertEquals(1.5, exit.getTicket().getPrice());
+        Ticket saved = ticketDAO.getTicket("ABCDEF");
+        assertEquals(inTime.plus(1, ChronoUnit.HOURS), saved.getOutTime().toInstant());
+        assertEquals(1.5, saved.getPrice());
+    }
+
+    /**
+     * Test case for entries once every spot of a type is taken.
+     * This test checks that the entry reports the parking as full.
+     */
+    @Test
+    void enterWhenFull() throws Exception {
+        assertTrue(parkingService.enter(ParkingType.BIKE, "BIKE1", inTime).isParked());
+        assertTrue(parkingService.enter(ParkingType.BIKE, "BIKE2", inTime).isParked());
+
+        EntryResult entry = parkingService.enter(ParkingType.BIKE, "BIKE3", inTime);
+
+        // Assertions to check that no ticket was opened
+        assertEquals(EntryResult.Status.FULL, entry.getStatus());
+        assertNull(entry.getTicket());
+        assertNull(ticketDAO.getTicket("BIKE3"));
+    }
+
+    /**
+     * Test case for an entry whose ticket insert fails, with a registration number longer than its column.
+     * This test checks that the entry fails and that the claimed spot is handed back with no ticket left behind.
+     */
+    @Test
+    void enterWithFailedInsertRollsBack() throws Exception {
+        assertThrows(SQLException.class, () -> parkingService.enter(ParkingType.CAR, "ABCDEFGHIJKLMNOP", inTime));
+
+        // Assertions to check that no ticket was saved and the next car gets the same spot
+        assertEquals(0, ticketDAO.getTicketCount("ABCDEFGHIJKLMNOP"));
+        assertEquals(1, parkingService.enter(ParkingType.CAR, "ABCDEF", inTime).getTicket().getParkingSpot().getId());
+    }
+
+    /**
+     * Test case for exits without an open ticket.
+     * This test checks an unknown vehicle and a vehicle that already left.
+     */
+    @Test
+    void exitWithoutOpenTicket() throws Exception {
+        // Assertion to check an unknown vehicle
+        assertEquals(ExitResult.Status.NO_OPEN_TICKET, parkingService.exit("UNKNOWN", inTime).getStatus());
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        assertTrue(parkingService.exit("ABCDEF", inTime.plus(1, ChronoUnit.HOURS)).isExited());
+
+        // Assertions to check that leaving again changes nothing
+        assertEquals(ExitResult.Status.NO_OPEN_TICKET, parkingService.exit("ABCDEF", inTime.plus(3, ChronoUnit.HOURS)).getStatus());
+        assertEquals(1.5, ticketDAO.getTicket("ABCDEF").getPrice());
+    }
+}
@@ -52,17 +52,16 @@ public class ParkingServiceTest {
     public void testProcessIncomingVehicle() throws Exception {
         // Configuration des comportements simulés pour les objets mockés
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
         // Appel de la méthode à tester
         parkingService.processIncomingVehicle();
 
         // Vérification des interactions avec les objets mockés
-        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlot(ParkingType.CAR);
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(ParkingType.CAR);
+        verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
     }
 
@@ -76,16 +75,15 @@ public class ParkingServiceTest {
         // Configuration des comportements simulés pour les objets mockés
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         when(inputReaderUtil.readSelection()).thenReturn(2);
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(2);
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE)).thenReturn(2);
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
         // Appel de la méthode à tester
         parkingService.processIncomingVehicle();
 
         // Vérification des interactions avec les objets mockés
-        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlot(ParkingType.BIKE);
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(ParkingType.BIKE);
+        verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
     }
 
@@ -98,16 +96,17 @@ public class ParkingServiceTest {
     public void testProcessIncomingVehicleError() throws Exception {
         // Configuration du comportement simulé pour l'objet mocké
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(-1);
+        when(parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)).thenReturn(-1);
 
         // Appel de la méthode à tester
         parkingService.processIncomingVehicle();
 
         // Vérification des interactions avec l'objet mocké
-        verify(parkingSpotDAO, Mockito.times(1)).getNextAvailableSlot(ParkingType.CAR);
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(ParkingType.CAR);
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
 
         // Vérification du résultat de la méthode
-        assertEquals(-1, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(-1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
     }
 
     /**
@@ -126,6 +125,7 @@ public class ParkingServiceTest {
         ticket.setVehicleRegNumber("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket(any(String.class))).thenReturn(true);
 
         // Appel de la méthode à tester
@@ -152,6 +152,7 @@ public class ParkingServiceTest {
         ticket.setVehicleRegNumber("ABCDEF");
         when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket(any(String.class))).thenReturn(false);
 
         // Appel de la méthode à tester
@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotAvailabilityIndex;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public class ParkingSpotAvailabilityIndexTest {
+
+    /**
+     * Test case for claiming spots from the index.
+     * This test checks that the lowest free spot of the requested type is claimed and only once.
+     */
+    @Test
+    void claimReturnsLowestFreeSpotOfType() {
+        // Spots 1 to 3 are cars, 4 and 5 bikes, spot 2 is taken
+        ParkingSpotAvailabilityIndex index = new ParkingSpotAvailabilityIndex(5);
+        index.setAvailable(ParkingType.CAR, 1, true);
+        index.setAvailable(ParkingType.CAR, 3, true);
+        index.setAvailable(ParkingType.BIKE, 4, true);
+        index.setAvailable(ParkingType.BIKE, 5, true);
+
+        // Assertions to check claim order and that claimed spots are no longer offered
+        assertEquals(4, index.claim(ParkingType.BIKE));
+        assertEquals(1, index.claim(ParkingType.CAR));
+        assertEquals(3, index.claim(ParkingType.CAR));
+        assertEquals(-1, index.claim(ParkingType.CAR));
+        assertEquals(1, index.countAvailable(ParkingType.BIKE));
+    }
+
+    /**
+     * Test case for releasing a claimed spot.
+     * This test checks that a released spot is claimed again before higher ones.
+     */
+    @Test
+    void releasedSpotIsClaimedAgain() {
+        // Two hundred car spots, all free
+        ParkingSpotAvailabilityIndex index = new ParkingSpotAvailabilityIndex(200);
+        for (int parkingNumber = 1; parkingNumber <= 200; parkingNumber++) {
+            index.setAvailable(ParkingType.CAR, parkingNumber, true);
+        }
+        for (int i = 0; i < 150; i++) {
+            index.claim(ParkingType.CAR);
+        }
+
+        // Release a low spot
+        assertTrue(index.setAvailable(ParkingType.CAR, 7, true));
+
+        // Assertions to check that the released spot comes back first and a repeated release changes nothing
+        assertFalse(index.setAvailable(ParkingType.CAR, 151, true));
+        assertEquals(7, index.claim(ParkingType.CAR));
+        assertEquals(151, index.claim(ParkingType.CAR));
+    }
+
+    /**
+     * Test case for many threads claiming and releasing spots at the same time.
+     * This test checks that no spot is held by two threads at once and that every spot is free at the end.
+     */
+    @Test
+    void concurrentClaimsAndReleasesNeverShareASpot() throws Exception {
+        int spots = 20000;
+        int threads = 8;
+        ParkingSpotAvailabilityIndex index = new ParkingSpotAvailabilityIndex(spots);
+        for (int parkingNumber = 1; parkingNumber <= spots; parkingNumber++) {
+            index.setAvailable(ParkingType.CAR, parkingNumber, true);
+        }
+        boolean[] held = new boolean[spots + 1];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Callable<Integer> churn = () -> {
+                int conflicts = 0;
+                start.await();
+                for (int i = 0; i < 50000; i++) {
+                    int parkingNumber = index.claim(ParkingType.CAR);
+                    synchronized (held) {
+                        if (held[parkingNumber]) {
+                            conflicts++;
+                        }
+                        held[parkingNumber] = true;
+                    }
+                    synchronized (held) {
+                        held[parkingNumber] = false;
+                    }
+                    index.setAvailable(ParkingType.CAR, parkingNumber, true);
+                }
+                return conflicts;
+            };
+            results.add(executor.submit(churn));
+        }
+        start.countDown();
+        int conflicts = 0;
+        for (Future<Integer> result : results) {
+            conflicts += result.get();
+        }
+        executor.shutdown();
+
+        // Assertions to check that no spot was ever held twice and none was lost
+        assertEquals(0, conflicts);
+        assertEquals(spots, index.countAvailable(ParkingType.CAR));
+    }
+
+    /**
+     * Test case for allocation through the DAO once the index is loaded.
+     * This test checks that claims come from the index, are written to the database and are undone on rollback.
+     */
+    @Test
+    void daoAllocatesFromLoadedIndex() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("availabilityIndexTest");
+        dataBaseTestConfig.prepareDataBase();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+
+        // Load the index from the parking table
+        assertTrue(parkingSpotDAO.loadAvailabilityIndex());
+        assertEquals(2, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+
+        // Claim in a unit of work that is rolled back
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertEquals(3, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        }
+
+        // Free spot 1 through the DAO
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true));
+
+        // Assertions to check that spot 3 came back after the rollback, spot 1 after its release, and the database agrees
+        assertTrue(parkingSpotDAO.availabilityIndex.isAvailable(ParkingType.CAR, 3));
+        assertEquals(1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        assertEquals(3, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        assertEquals(-1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+        parkingSpotDAO.availabilityIndex = null;
+        assertEquals(-1, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR));
+    }
+}
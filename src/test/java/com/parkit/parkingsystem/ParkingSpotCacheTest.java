@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class ParkingSpotCacheTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("parkingSpotCacheTest");
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        parkingSpotDAO.parkingSpotCache = ticketDAO.parkingSpotCache;
+    }
+
+    private void saveTicket(String vehicleRegNumber, int parkingNumber, ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        ticketDAO.saveTicket(ticket);
+    }
+
+    private void setSpotType(int parkingNumber, ParkingType parkingType) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        con.createStatement().execute("update parking set TYPE = '" + parkingType + "' where PARKING_NUMBER = " + parkingNumber);
+        dataBaseTestConfig.closeConnection(con);
+    }
+
+    /**
+     * Test case for reading tickets on the same spot.
+     * This test checks that the spot is read once and shared, and that an exit does not modify the shared spot.
+     */
+    @Test
+    void ticketsOnSameSpotShareCachedSpot() throws Exception {
+        saveTicket("ABCDEF", 1, ParkingType.CAR);
+        saveTicket("GHIJKL", 1, ParkingType.CAR);
+
+        Ticket first = ticketDAO.getTicket("ABCDEF");
+        Ticket second = ticketDAO.getTicket("GHIJKL");
+
+        // Assertions to check that both tickets got the same cached spot, with its type
+        assertSame(first.getParkingSpot(), second.getParkingSpot());
+        assertEquals(ParkingType.CAR, first.getParkingSpot().getParkingType());
+        assertEquals(1, ticketDAO.parkingSpotCache.size());
+
+        // Assertions to check that the exit replaced the ticket's spot instead of freeing the shared one
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        ParkingSpot cachedSpot = second.getParkingSpot();
+        assertTrue(parkingService.exit("ABCDEF", Instant.now()).getTicket().getParkingSpot().isAvailable());
+        assertFalse(cachedSpot.isAvailable());
+        assertSame(cachedSpot, ticketDAO.getTicket("GHIJKL").getParkingSpot());
+    }
+
+    /**
+     * Test case for a spot whose type changes in the database.
+     * This test checks that the spots loaded at startup are served from the cache until the spot is invalidated.
+     */
+    @Test
+    void invalidatedSpotIsReadAgain() throws Exception {
+        assertTrue(parkingSpotDAO.loadAvailabilityIndex());
+        assertEquals(5, ticketDAO.parkingSpotCache.size());
+        saveTicket("ABCDEF", 5, ParkingType.BIKE);
+
+        // Turn the bike spot into a car spot behind the cache's back
+        setSpotType(5, ParkingType.CAR);
+
+        // Assertion to check that the cached type is still used
+        assertEquals(ParkingType.BIKE, ticketDAO.getTicket("ABCDEF").getParkingSpot().getParkingType());
+
+        // Assertion to check that the new type is read once the spot is invalidated
+        ticketDAO.parkingSpotCache.invalidate(5);
+        assertEquals(ParkingType.CAR, ticketDAO.getTicket("ABCDEF").getParkingSpot().getParkingType());
+    }
+}
@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.RevenueAggregator;
+import com.parkit.parkingsystem.dao.RevenueAggregator.Bucket;
+import com.parkit.parkingsystem.dao.RevenueAggregator.Resolution;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class RevenueAggregatorTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("revenueAggregatorTest");
+    private RevenueAggregator revenueAggregator;
+    private Instant day;
+    private Path snapshotFile;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        revenueAggregator = new RevenueAggregator();
+        day = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+        snapshotFile = Files.createTempFile("revenue", ".bin");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    private void add(ParkingType parkingType, Instant inTime, Instant outTime, double price) {
+        revenueAggregator.add(parkingType, inTime.toEpochMilli(), outTime.toEpochMilli(), price);
+    }
+
+    /**
+     * Test case for three tickets closed in the same day, one of them parked across three hours.
+     * This test checks the revenue, ticket count and occupancy of the hour, minute and day buckets of each type.
+     */
+    @Test
+    void closedTicketsAreAggregated() {
+        Instant ten = day.plus(10, ChronoUnit.HOURS);
+        add(ParkingType.CAR, ten.plus(30, ChronoUnit.MINUTES), ten.plus(135, ChronoUnit.MINUTES), 2.25);
+        add(ParkingType.CAR, ten.plus(150, ChronoUnit.MINUTES), ten.plus(170, ChronoUnit.MINUTES), 0.1);
+        add(ParkingType.BIKE, ten, ten.plus(60, ChronoUnit.MINUTES), 1);
+
+        List<Bucket> hours = revenueAggregator.getBuckets(Resolution.HOUR, ParkingType.CAR, ten.minus(1, ChronoUnit.HOURS), ten.plus(2, ChronoUnit.HOURS));
+
+        // Assertions to check the hour buckets: revenue at the out-time, parked time spread over the stay
+        assertEquals(4, hours.size());
+        assertEquals(ten.minus(1, ChronoUnit.HOURS), hours.get(0).getStart());
+        assertEquals(0, hours.get(0).getTicketCount());
+        assertEquals(0, hours.get(1).getRevenue());
+        assertEquals(0.5, hours.get(1).getAverageOccupancy());
+        assertEquals(1.0, hours.get(2).getAverageOccupancy());
+        assertEquals(2, hours.get(3).getTicketCount());
+        assertEquals(2.35, hours.get(3).getRevenue());
+        assertEquals((15 + 20) * 60_000, hours.get(3).getParkedMillis());
+
+        // Assertions to check the minute and day buckets, and that the types are kept apart
+        List<Bucket> minutes = revenueAggregator.getBuckets(Resolution.MINUTE, ParkingType.CAR, ten.plus(135, ChronoUnit.MINUTES), ten.plus(135, ChronoUnit.MINUTES));
+        assertEquals(1, minutes.size());
+        assertEquals(2.25, minutes.get(0).getRevenue());
+        Bucket carDay = revenueAggregator.getBuckets(Resolution.DAY, ParkingType.CAR, day, day).get(0);
+        assertEquals(2, carDay.getTicketCount());
+        assertEquals((105 + 20) * 60_000, carDay.getParkedMillis());
+        Bucket bikeDay = revenueAggregator.getBuckets(Resolution.DAY, ParkingType.BIKE, day, day).get(0);
+        assertEquals(1, bikeDay.getTicketCount());
+        assertEquals(1.0, bikeDay.getRevenue());
+    }
+
+    /**
+     * Test case for a ticket closed a full ring of minutes after another.
+     * This test checks that the older minute bucket is reused and left out of reads, while the hour buckets keep both.
+     */
+    @Test
+    void oldBucketsLeaveTheWindow() {
+        Instant first = day.minus(1, ChronoUnit.DAYS);
+        Instant second = first.plus(Resolution.MINUTE.getBuckets(), ChronoUnit.MINUTES);
+        add(ParkingType.CAR, first.minus(10, ChronoUnit.MINUTES), first, 1.5);
+        add(ParkingType.CAR, second.minus(10, ChronoUnit.MINUTES), second, 3);
+        // Too old for the minute ring now, so only the hour and day rings take it
+        add(ParkingType.CAR, first.minus(10, ChronoUnit.MINUTES), first, 1.5);
+
+        List<Bucket> minutes = revenueAggregator.getBuckets(Resolution.MINUTE, ParkingType.CAR, first, second);
+
+        // Assertions to check that only the window of the minute ring is read, and that the hour ring still has both
+        assertEquals(Resolution.MINUTE.getBuckets(), minutes.size());
+        assertEquals(first.plus(1, ChronoUnit.MINUTES), minutes.get(0).getStart());
+        assertEquals(0, revenueAggregator.getBuckets(Resolution.MINUTE, ParkingType.CAR, first, first).get(0).getRevenue());
+        assertEquals(3, minutes.get(minutes.size() - 1).getRevenue());
+        assertEquals(3, revenueAggregator.getBuckets(Resolution.HOUR, ParkingType.CAR, first, first).get(0).getRevenue());
+        assertEquals(3, revenueAggregator.getBuckets(Resolution.HOUR, ParkingType.CAR, second, second).get(0).getRevenue());
+    }
+
+    /**
+     * Test case for a snapshot written and read back, then for a file that is not a snapshot.
+     * This test checks that the buckets are restored and that the other file is rejected.
+     */
+    @Test
+    void snapshotIsRestored() throws Exception {
+        Instant ten = day.plus(10, ChronoUnit.HOURS);
+        add(ParkingType.CAR, ten, ten.plus(90, ChronoUnit.MINUTES), 2.25);
+        add(ParkingType.BIKE, ten, ten.plus(30, ChronoUnit.MINUTES), 0.5);
+        revenueAggregator.writeSnapshot(snapshotFile);
+
+        RevenueAggregator restored = new RevenueAggregator();
+        restored.readSnapshot(snapshotFile);
+
+        // Assertions to check the restored buckets of every resolution and the size of the snapshot
+        for (Resolution resolution : Resolution.values()) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                List<Bucket> expected = revenueAggregator.getBuckets(resolution, parkingType, day, day.plus(1, ChronoUnit.DAYS));
+                List<Bucket> actual = restored.getBuckets(resolution, parkingType, day, day.plus(1, ChronoUnit.DAYS));
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getRevenue(), actual.get(i).getRevenue());
+                    assertEquals(expected.get(i).getTicketCount(), actual.get(i).getTicketCount());
+                    assertEquals(expected.get(i).getParkedMillis(), actual.get(i).getParkedMillis());
+                }
+            }
+        }
+        // Car: 91 minutes, 2 hours, 1 day; bike: 31 minutes, 1 hour, 1 day
+        int rings = Resolution.values().length * ParkingType.values().length;
+        assertEquals(8 + rings * 4 + (91 + 2 + 1 + 31 + 1 + 1) * 28, Files.size(snapshotFile));
+        Files.write(snapshotFile, new byte[] {'P', 'K', 'T', 'X', 0, 0, 0, 1});
+        assertThrows(IOException.class, () -> new RevenueAggregator().readSnapshot(snapshotFile));
+    }
+
+    /**
+     * Test case for a visit through the service, then for a ticket update that is rolled back.
+     * This test checks that the committed fare reaches the aggregator and the rolled back one does not.
+     */
+    @Test
+    void updateTicketFeedsAggregatorOnCommit() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO.revenueAggregator = revenueAggregator;
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        Instant inTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(1, ChronoUnit.HOURS);
+
+        parkingService.enter(ParkingType.CAR, "ABCDEF", inTime);
+        Instant outTime = inTime.plus(1, ChronoUnit.HOURS);
+        assertTrue(parkingService.exit("ABCDEF", outTime).isExited());
+        parkingService.enter(ParkingType.CAR, "GHIJKL", inTime);
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            Ticket ticket = ticketDAO.getTicket("GHIJKL");
+            ticket.setOutTime(Date.from(outTime));
+            ticket.setPrice(1.5);
+            assertTrue(ticketDAO.updateTicket(ticket));
+        }
+
+        Bucket today = revenueAggregator.getBuckets(Resolution.DAY, ParkingType.CAR, outTime, outTime).get(0);
+
+        // Assertions to check that only the committed exit was aggregated
+        assertEquals(1, today.getTicketCount());
+        assertEquals(1.5, today.getRevenue());
+    }
+}
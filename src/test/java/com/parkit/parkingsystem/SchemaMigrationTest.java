@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+
+public class SchemaMigrationTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("schemaMigrationTest");
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        new SchemaMigrator(dataBaseTestConfig).migrate();
+    }
+
+    /**
+     * Test case for migrating an empty database.
+     * This test checks that every migration is recorded and that running the migrator again applies nothing.
+     */
+    @Test
+    void migrationsAreAppliedOnce() throws SQLException {
+        SchemaMigrator schemaMigrator = new SchemaMigrator(dataBaseTestConfig);
+
+        // Assertions to check that the database is at the latest version and nothing is left to apply
+        assertEquals(SchemaMigrator.getLatestVersion(), schemaMigrator.getCurrentVersion());
+        assertEquals(0, schemaMigrator.migrate());
+    }
+
+    /**
+     * Test case for migrating a database created by the original Data.sql.
+     * This test checks that its schema is recorded as version 1 and only the later migrations are applied.
+     */
+    @Test
+    void legacySchemaIsBaselined() throws Exception {
+        EmbeddedDataBaseTestConfig legacyConfig = new EmbeddedDataBaseTestConfig("legacySchemaMigrationTest");
+        Connection con = legacyConfig.getConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+            statement.execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL, VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME, FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+        } finally {
+            legacyConfig.closeConnection(con);
+        }
+
+        // Migrate the legacy database
+        int applied = new SchemaMigrator(legacyConfig).migrate();
+
+        // Assertions to check that the first migration was skipped and the others applied
+        assertEquals(SchemaMigrator.getLatestVersion() - 1, applied);
+        assertEquals(SchemaMigrator.getLatestVersion(), new SchemaMigrator(legacyConfig).getCurrentVersion());
+    }
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ShardMap;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.ParkingEventBus;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.SiteRouter;
+
+public class SiteRouterTest {
+
+    private static EmbeddedDataBaseTestConfig northDataBaseConfig = new EmbeddedDataBaseTestConfig("siteRouterNorth");
+    private static EmbeddedDataBaseTestConfig southDataBaseConfig = new EmbeddedDataBaseTestConfig("siteRouterSouth");
+    private SiteRouter siteRouter;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        northDataBaseConfig.prepareDataBase();
+        southDataBaseConfig.prepareDataBase();
+        siteRouter = new SiteRouter(new ShardMap()
+                .addSite("north", northDataBaseConfig)
+                .addSite("south", southDataBaseConfig));
+        siteRouter.migrateAll();
+    }
+
+    /**
+     * Test case for vehicles parking at two sites.
+     * This test checks that each site allocates its own spots and keeps its own tickets.
+     */
+    @Test
+    void sitesKeepSeparateSpotsAndTickets() throws Exception {
+        EntryResult north = siteRouter.enter("north", ParkingType.CAR, "ABCDEF", Instant.now());
+        siteRouter.enter("north", ParkingType.CAR, "GHIJKL", Instant.now());
+        EntryResult south = siteRouter.enter("south", ParkingType.CAR, "ABCDEF", Instant.now());
+
+        // Assertions to check that both sites handed out their own first spot
+        assertEquals(1, north.getTicket().getParkingSpot().getId());
+        assertEquals(1, south.getTicket().getParkingSpot().getId());
+        assertEquals("north", north.getTicket().getSiteId());
+        assertEquals("south", south.getTicket().getParkingSpot().getSiteId());
+        assertEquals(1, siteRouter.getAvailableSlotCount("north", ParkingType.CAR));
+        assertEquals(2, siteRouter.getAvailableSlotCount("south", ParkingType.CAR));
+
+        // Assertions to check that the same plate leaves one site without touching the other
+        ExitResult exit = siteRouter.exit("south", "ABCDEF", Instant.now());
+        assertTrue(exit.isExited());
+        assertEquals("south", exit.getTicket().getSiteId());
+        Ticket northTicket = siteRouter.getTicket("north", "ABCDEF");
+        assertNull(northTicket.getOutTime());
+        assertEquals("north", northTicket.getParkingSpot().getSiteId());
+        assertEquals(3, siteRouter.getAvailableSlotCount("south", ParkingType.CAR));
+    }
+
+    /**
+     * Test case for an entry routed to a site whose parking service publishes events.
+     * This test checks that the entry event carries the site, which is copied when the event is published.
+     */
+    @Test
+    void routedEntryEventCarriesSite() throws Exception {
+        List<String> siteIds = new ArrayList<>();
+        CountDownLatch published = new CountDownLatch(1);
+        try (ParkingEventBus eventBus = new ParkingEventBus(8)) {
+            eventBus.subscribe("test", (event, endOfBatch) -> {
+                siteIds.add(event.getSiteId());
+                published.countDown();
+            });
+            eventBus.start();
+            siteRouter.getParkingService("north").setEventBus(eventBus);
+
+            siteRouter.enter("north", ParkingType.CAR, "ABCDEF", Instant.now());
+
+            // Assertion to check the site of the entry event
+            assertTrue(published.await(5, TimeUnit.SECONDS));
+            assertEquals("north", siteIds.get(0));
+        }
+    }
+
+    /**
+     * Test case for a site missing from the shard map.
+     * This test checks that routing to it fails instead of falling back to another database.
+     */
+    @Test
+    void unknownSiteIsRejected() {
+        Ticket ticket = new Ticket();
+        ticket.setSiteId("east");
+
+        // Assertions to check that both site ids and site-tagged objects are checked
+        assertThrows(IllegalArgumentException.class, () -> siteRouter.enter("east", ParkingType.CAR, "ABCDEF", Instant.now()));
+        assertThrows(IllegalArgumentException.class, () -> siteRouter.saveTicket(ticket));
+    }
+
+    /**
+     * Test case for reading a shard map from properties.
+     * This test checks that every site with a url is mapped and that a site without one is rejected.
+     */
+    @Test
+    void shardMapIsReadFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("site.north.url", "jdbc:mysql://north:3306/prod");
+        properties.setProperty("site.north.user", "root");
+        properties.setProperty("site.south.url", "jdbc:mysql://south:3306/prod");
+
+        // Assertions to check the mapped sites
+        ShardMap shardMap = ShardMap.fromProperties(properties);
+        assertEquals(2, shardMap.getSiteIds().size());
+        assertNotNull(shardMap.getDataBaseConfig("south"));
+        assertThrows(IllegalArgumentException.class, () -> shardMap.getDataBaseConfig("east"));
+
+        // Assertion to check that a site without url is rejected
+        properties.setProperty("site.east.user", "root");
+        assertThrows(IllegalArgumentException.class, () -> ShardMap.fromProperties(properties));
+    }
+}
@@ -0,0 +1,153 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.StatementCache;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+
+public class StatementCacheTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("statementCacheTest");
+    private Connection rawConnection;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        rawConnection = DriverManager.getConnection("jdbc:h2:mem:statementCacheTest;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        rawConnection.close();
+    }
+
+    private int selectOne(PreparedStatement ps) throws Exception {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Test case for preparing the same query twice on a connection.
+     * This test checks that the statement closed by the first caller is handed to the second one.
+     */
+    @Test
+    void closedStatementIsReused() throws Exception {
+        StatementCache statementCache = new StatementCache(4);
+        Connection con = statementCache.wrap(rawConnection);
+
+        PreparedStatement first = con.prepareStatement("select ? from dual");
+        first.setInt(1, 42);
+        assertEquals(42, selectOne(first));
+        PreparedStatement firstStatement = first.unwrap(PreparedStatement.class);
+        first.close();
+        PreparedStatement second = con.prepareStatement("select ? from dual");
+
+        // Assertions to check the reuse, the counters and that parameters were cleared
+        assertSame(firstStatement, second.unwrap(PreparedStatement.class));
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertEquals(1, statementCache.getMissCount());
+        assertEquals(1, statementCache.getHitCount());
+        assertThrows(Exception.class, () -> selectOne(second));
+
+        // Assertion to check that closing the connection closes the cached statements
+        second.close();
+        con.close();
+        assertTrue(firstStatement.isClosed());
+    }
+
+    /**
+     * Test case for a caller changing the settings of a cached statement, as the ticket export does for streaming.
+     * This test checks that the next caller gets the default settings and the caching connection.
+     */
+    @Test
+    void reusedStatementHasDefaultSettings() throws Exception {
+        StatementCache statementCache = new StatementCache(4);
+        Connection con = statementCache.wrap(rawConnection);
+
+        PreparedStatement first = con.prepareStatement("select ? from dual");
+        int fetchSize = first.getFetchSize();
+        int maxRows = first.getMaxRows();
+        int queryTimeout = first.getQueryTimeout();
+        first.setFetchSize(fetchSize + 50);
+        first.setMaxRows(maxRows + 1);
+        first.setQueryTimeout(queryTimeout + 5);
+        first.close();
+        PreparedStatement second = con.prepareStatement("select ? from dual");
+
+        // Assertions to check that the reused statement got its settings back
+        assertEquals(1, statementCache.getHitCount());
+        assertEquals(fetchSize, second.getFetchSize());
+        assertEquals(maxRows, second.getMaxRows());
+        assertEquals(queryTimeout, second.getQueryTimeout());
+
+        // Assertion to check that the statement leads back to the caching connection, not the pooled one
+        assertSame(con, second.getConnection());
+        second.close();
+        con.close();
+    }
+
+    /**
+     * Test case for preparing a query while the same query is still open, and for a full cache.
+     * This test checks that the open statement is not shared and that the least recently used statement is closed.
+     */
+    @Test
+    void openStatementIsNotSharedAndCacheIsBounded() throws Exception {
+        StatementCache statementCache = new StatementCache(2);
+        Connection con = statementCache.wrap(rawConnection);
+
+        PreparedStatement outer = con.prepareStatement("select 1 from dual");
+        PreparedStatement inner = con.prepareStatement("select 1 from dual");
+
+        // Assertion to check that the second caller got its own statement
+        assertNotSame(outer.unwrap(PreparedStatement.class), inner.unwrap(PreparedStatement.class));
+        assertEquals(2, statementCache.getMissCount());
+        outer.close();
+        inner.close();
+
+        PreparedStatement cached = con.prepareStatement("select 1 from dual");
+        PreparedStatement cachedStatement = cached.unwrap(PreparedStatement.class);
+        cached.close();
+        con.prepareStatement("select 2 from dual").close();
+        con.prepareStatement("select 3 from dual").close();
+
+        // Assertions to check that the first query was evicted and closed
+        assertEquals(1, statementCache.getEvictionCount());
+        assertTrue(cachedStatement.isClosed());
+        con.close();
+    }
+
+    /**
+     * Test case for the DAOs running on pooled connections.
+     * This test checks that repeated DAO calls are served from the statement cache.
+     */
+    @Test
+    void daoCallsHitTheCache() {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        StatementCache statementCache = dataBaseTestConfig.getStatementCache();
+        ticketDAO.getTicketCount("ABCDEF");
+        long misses = statementCache.getMissCount();
+        long hits = statementCache.getHitCount();
+
+        for (int i = 0; i < 10; i++) {
+            ticketDAO.getTicketCount("ABCDEF");
+        }
+
+        // Assertions to check that every call reused the prepared count query
+        assertEquals(misses, statementCache.getMissCount());
+        assertEquals(hits + 10, statementCache.getHitCount());
+    }
+}
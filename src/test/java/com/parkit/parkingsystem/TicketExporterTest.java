@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketExporter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class TicketExporterTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("ticketExporterTest");
+    private TicketDAO ticketDAO;
+    private Date inTime;
+    private Date outTime;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        inTime = toDate(LocalDateTime.of(2024, 3, 5, 8, 7, 6));
+        outTime = toDate(LocalDateTime.of(2024, 3, 5, 10, 30, 0));
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void saveTicket(int parkingNumber, String vehicleRegNumber, double price, Date outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(price);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(outTime);
+        ticketDAO.saveTicket(ticket);
+    }
+
+    private byte[] export(TicketExporter ticketExporter, TicketExporter.Format format, long expectedRows) throws Exception {
+        ticketExporter.dataBaseConfig = dataBaseTestConfig;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TicketExporter.ExportResult result = ticketExporter.export(Channels.newChannel(out), format);
+        assertEquals(expectedRows, result.getRows());
+        assertEquals(out.size(), result.getBytes());
+        return out.toByteArray();
+    }
+
+    /**
+     * Test case for exporting tickets as CSV.
+     * This test checks the header and the encoding of closed and open tickets, including a plate that needs quoting.
+     */
+    @Test
+    void exportAsCsv() throws Exception {
+        saveTicket(1, "ABCDEF", 3.45, outTime);
+        saveTicket(2, "GH\"IJ", 0, null);
+
+        String csv = new String(export(new TicketExporter(), TicketExporter.Format.CSV, 2), StandardCharsets.UTF_8);
+
+        // Assertions to check the exported lines
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("ID,PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME", lines[0]);
+        assertTrue(lines[1].endsWith(",1,ABCDEF,3.45,2024-03-05 08:07:06,2024-03-05 10:30:00"));
+        assertTrue(lines[2].endsWith(",2,\"GH\"\"IJ\",0.00,2024-03-05 08:07:06,"));
+    }
+
+    /**
+     * Test case for exporting tickets in the binary format.
+     * This test checks that every field can be read back, and the trailing ticket count.
+     */
+    @Test
+    void exportAsBinary() throws Exception {
+        saveTicket(3, "ABCDEF", 12.5, outTime);
+        saveTicket(1, "GHIJKL", 0, null);
+
+        ByteBuffer buffer = ByteBuffer.wrap(export(new TicketExporter(), TicketExporter.Format.BINARY, 2));
+
+        // Assertions to check the header
+        assertEquals('P', buffer.get());
+        assertEquals('K', buffer.get());
+        assertEquals('T', buffer.get());
+        assertEquals('X', buffer.get());
+        assertEquals(TicketExporter.BINARY_FORMAT_VERSION, buffer.getInt());
+
+        // Assertions to check the closed ticket
+        assertEquals(1, buffer.get());
+        buffer.getInt();
+        assertEquals(3, buffer.getInt());
+        byte[] vehicleRegNumber = new byte[buffer.getShort()];
+        buffer.get(vehicleRegNumber);
+        assertEquals("ABCDEF", new String(vehicleRegNumber, StandardCharsets.UTF_8));
+        assertEquals(1250, buffer.getLong());
+        assertEquals(inTime.getTime(), buffer.getLong());
+        assertEquals(outTime.getTime(), buffer.getLong());
+
+        // Assertions to check the open ticket and the trailer
+        assertEquals(1, buffer.get());
+        buffer.getInt();
+        assertEquals(1, buffer.getInt());
+        buffer.position(buffer.position() + 2 + buffer.getShort(buffer.position()));
+        assertEquals(0, buffer.getLong());
+        assertEquals(inTime.getTime(), buffer.getLong());
+        assertEquals(-1, buffer.getLong());
+        assertEquals(0, buffer.get());
+        assertEquals(2, buffer.getLong());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Test case for exporting more tickets than fit in the export buffer.
+     * This test checks that the buffer is written out and reused as it fills, without losing tickets.
+     */
+    @Test
+    void exportLargerThanBuffer() throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) "
+                    + "select 1, concat('P', X), 1.5, current_timestamp, current_timestamp from system_range(1, 20000)");
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+
+        String csv = new String(export(new TicketExporter(1024, 100), TicketExporter.Format.CSV, 20000), StandardCharsets.UTF_8);
+
+        // Assertions to check that every ticket was written, in order
+        String[] lines = csv.split("\n");
+        assertEquals(20001, lines.length);
+        assertTrue(lines[20000].contains(",P20000,1.50,"));
+    }
+}
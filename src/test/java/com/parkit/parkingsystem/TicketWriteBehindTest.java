@@ -0,0 +1,276 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class TicketWriteBehindTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("ticketWriteBehindTest");
+    private TicketDAO ticketDAO;
+    private Path journalPath;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        journalPath = Files.createTempFile("ticket-journal", ".bin");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        if (ticketDAO.writeBehind != null) {
+            ticketDAO.writeBehind.close();
+        }
+        Files.deleteIfExists(journalPath);
+    }
+
+    private void startWriteBehind(TicketWriteBehind.Durability durability) throws Exception {
+        ticketDAO.writeBehind = new TicketWriteBehind(ticketDAO, durability, journalPath);
+        ticketDAO.writeBehind.start();
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    private int countRows(String sql) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Test case for saving tickets from several gates with acknowledgement after flush.
+     * This test checks that every acknowledged ticket is in the database with its id and active ticket row.
+     */
+    @Test
+    void ackAfterFlushSavesEveryTicket() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_FLUSH);
+
+        // Save 400 tickets from 8 threads
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> acknowledgements = new ArrayList<>();
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Ticket ticket = newTicket("P" + i);
+            tickets.add(ticket);
+            acknowledgements.add(executor.submit(() -> ticketDAO.saveTicket(ticket)));
+        }
+        for (Future<Boolean> acknowledgement : acknowledgements) {
+            assertTrue(acknowledgement.get());
+        }
+        executor.shutdown();
+
+        // Assertions to check the saved tickets, without waiting for anything else to be flushed
+        assertEquals(400, countRows("select count(*) from ticket"));
+        assertEquals(400, countRows("select count(*) from active_ticket"));
+        for (Ticket ticket : tickets) {
+            assertTrue(ticket.getId() > 0);
+        }
+        assertEquals(0, Files.size(journalPath));
+    }
+
+    /**
+     * Test case for looking up a ticket right after it was queued with acknowledgement after enqueue.
+     * This test checks that the lookup waits for the ticket to be flushed instead of missing it.
+     */
+    @Test
+    void getTicketWaitsForQueuedTicket() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+
+        Ticket ticket = newTicket("ABCDEF");
+        assertTrue(ticketDAO.saveTicket(ticket));
+        Ticket savedTicket = ticketDAO.getTicket("ABCDEF");
+
+        // Assertions to check that the queued ticket was found
+        assertNotNull(savedTicket);
+        assertEquals(ticket.getId(), savedTicket.getId());
+        assertEquals(1, ticketDAO.getTicketCount("ABCDEF"));
+    }
+
+    /**
+     * Test case for a ticket saved in a unit of work that is rolled back.
+     * This test checks that the queued ticket is dropped instead of saved.
+     */
+    @Test
+    void rolledBackTicketIsNotSaved() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            ticketDAO.saveTicket(newTicket("ABCDEF"));
+        }
+        assertTrue(ticketDAO.writeBehind.flush());
+
+        // Assertion to check that nothing was saved
+        assertEquals(0, countRows("select count(*) from ticket"));
+    }
+
+    /**
+     * Test case for a ticket saved in a unit of work with acknowledgement after enqueue.
+     * This test checks that the ticket is journaled right away but only written once the work commits.
+     */
+    @Test
+    void ticketInUnitOfWorkIsWrittenAfterCommit() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+            // Several flush intervals, during which the flusher must hold the ticket back
+            Thread.sleep(200);
+
+            // Assertions to check that the ticket is journaled but not written yet
+            assertTrue(Files.size(journalPath) > 0);
+            assertEquals(0, countRows("select count(*) from ticket"));
+            unitOfWork.commit();
+        }
+        assertTrue(ticketDAO.writeBehind.flush());
+
+        // Assertion to check that the committed ticket was written
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+    }
+
+    /**
+     * Test case for a unit of work left open while other gates save tickets.
+     * This test checks that the open work's ticket does not hold back the others, and is written once the work commits.
+     */
+    @Test
+    void openUnitOfWorkDoesNotHoldBackOtherTickets() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+        ExecutorService gate = Executors.newSingleThreadExecutor();
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF")));
+            Future<Ticket> otherTicket = gate.submit(() -> {
+                ticketDAO.saveTicket(newTicket("GHIJKL"));
+                return ticketDAO.getTicket("GHIJKL");
+            });
+
+            // Assertions to check that the other ticket was written while the work is still open
+            assertNotNull(otherTicket.get(5, TimeUnit.SECONDS));
+            assertEquals(0, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+            unitOfWork.commit();
+        } finally {
+            gate.shutdown();
+        }
+        assertTrue(ticketDAO.writeBehind.flush());
+
+        // Assertion to check that the deferred ticket was written after the commit
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+    }
+
+    /**
+     * Test case for a ticket saved in a unit of work with acknowledgement after flush.
+     * This test checks that the ticket is in the database as soon as the work commits.
+     */
+    @Test
+    void ackAfterFlushInUnitOfWorkSavesWithTheWork() throws Exception {
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_FLUSH);
+
+        Ticket ticket = newTicket("ABCDEF");
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            assertTrue(ticketDAO.saveTicket(ticket));
+            unitOfWork.commit();
+        }
+
+        // Assertions to check that the ticket was inserted by the unit of work, not queued
+        assertTrue(ticket.getId() > 0);
+        assertEquals(0, ticketDAO.writeBehind.getQueuedCount());
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+    }
+
+    /**
+     * Test case for restarting after a crash.
+     * This test checks that only the journaled tickets past the database checkpoint are replayed,
+     * and that a record cut short by the crash is ignored.
+     */
+    @Test
+    void startReplaysTicketsMissingFromDatabase() throws Exception {
+        // A journal of three tickets, the first of which reached the database, and a torn fourth record
+        try (TicketJournal journal = new TicketJournal(journalPath)) {
+            journal.append(1, newTicket("AAAAAA"), true);
+            journal.append(2, newTicket("BBBBBB"), true);
+            journal.append(3, newTicket("CCCCCC"), true);
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 60, 1, 2, 3}));
+        }
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME) values(1, 'AAAAAA', 0, current_timestamp)");
+            statement.execute("insert into write_behind_checkpoint(JOURNAL, SEQUENCE) values('" + journalPath.getFileName() + "', 1)");
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+
+        // Assertions to check that the two missing tickets were replayed once and the journal emptied
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AAAAAA'"));
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'BBBBBB'"));
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CCCCCC'"));
+        assertEquals(0, Files.size(journalPath));
+
+        // Assertion to check that new tickets continue the sequence
+        assertTrue(ticketDAO.saveTicket(newTicket("DDDDDD")));
+        assertTrue(ticketDAO.writeBehind.flush());
+        assertEquals(4, countRows("select SEQUENCE from write_behind_checkpoint"));
+    }
+
+    /**
+     * Test case for restarting after a crash that left cancelled and deferred tickets in the journal.
+     * This test checks that a cancelled ticket is not replayed and a ticket journaled again is replayed once.
+     */
+    @Test
+    void startSkipsCancelledAndReplacedRecords() throws Exception {
+        try (TicketJournal journal = new TicketJournal(journalPath)) {
+            journal.append(1, newTicket("AAAAAA"), true);
+            journal.append(2, newTicket("BBBBBB"), true);
+            journal.appendCancel(1);
+            journal.append(3, 2, newTicket("BBBBBB"), true);
+        }
+
+        startWriteBehind(TicketWriteBehind.Durability.ACK_AFTER_ENQUEUE);
+
+        // Assertions to check that only the live record of the deferred ticket was replayed
+        assertEquals(0, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AAAAAA'"));
+        assertEquals(1, countRows("select count(*) from ticket where VEHICLE_REG_NUMBER = 'BBBBBB'"));
+        assertEquals(3, countRows("select SEQUENCE from write_behind_checkpoint"));
+    }
+}
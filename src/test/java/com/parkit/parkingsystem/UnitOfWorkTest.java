@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.SQLException;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class UnitOfWorkTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("unitOfWorkTest");
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+    }
+
+    private Ticket newTicket(ParkingSpot parkingSpot) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    /**
+     * Test case for running an entry workflow in a unit of work.
+     * This test checks that all DAO calls share a single pooled connection and are visible once committed.
+     */
+    @Test
+    void committedWorkUsesOneConnection() throws Exception {
+        long borrowsBefore = dataBaseTestConfig.getConnectionPool().getBorrowCount();
+
+        // Run the entry workflow statements in one unit of work
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            int parkingNumber = parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, ParkingType.CAR, false);
+            parkingSpotDAO.updateParking(parkingSpot);
+            ticketDAO.saveTicket(newTicket(parkingSpot));
+            unitOfWork.commit();
+        }
+
+        // Assertions to check that one connection was borrowed and the work is visible afterwards
+        assertEquals(borrowsBefore + 1, dataBaseTestConfig.getConnectionPool().getBorrowCount());
+        assertEquals(2, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertNotNull(ticketDAO.getTicket("ABCDEF"));
+        assertEquals(0, dataBaseTestConfig.getConnectionPool().getActiveCount());
+    }
+
+    /**
+     * Test case for closing a unit of work without committing it.
+     * This test checks that the statements run inside it are rolled back.
+     */
+    @Test
+    void uncommittedWorkIsRolledBackOnClose() {
+        // Run the entry workflow statements without committing
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+            parkingSpotDAO.updateParking(parkingSpot);
+            ticketDAO.saveTicket(newTicket(parkingSpot));
+        }
+
+        // Assertions to check that neither the spot nor the ticket changed
+        assertEquals(1, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertNull(ticketDAO.getTicket("ABCDEF"));
+    }
+
+    /**
+     * Test case for a unit of work begun inside another one.
+     * This test checks that the inner one joins the outer transaction and only the outer commit applies it.
+     */
+    @Test
+    void nestedUnitOfWorkJoinsOuterOne() throws Exception {
+        try (UnitOfWork outer = UnitOfWork.begin()) {
+            // Commit the inner unit of work, which must not commit anything by itself
+            try (UnitOfWork inner = UnitOfWork.begin()) {
+                parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+                inner.commit();
+            }
+            // The outer unit of work is left uncommitted
+        }
+
+        // Assertion to check that the work was rolled back with the outer unit of work
+        assertEquals(1, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    /**
+     * Test case for a unit of work joined by one that is closed without committing, as a failing DAO does.
+     * This test checks that the outer commit fails and that the work of both is rolled back.
+     */
+    @Test
+    void uncommittedJoinedWorkMakesCommitFail() {
+        assertThrows(SQLException.class, () -> {
+            try (UnitOfWork outer = UnitOfWork.begin()) {
+                parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+                try (UnitOfWork inner = UnitOfWork.begin()) {
+                    parkingSpotDAO.updateParking(new ParkingSpot(2, ParkingType.CAR, false));
+                }
+                outer.commit();
+            }
+        });
+
+        // Assertion to check that neither spot was taken
+        assertEquals(1, (int) parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+}
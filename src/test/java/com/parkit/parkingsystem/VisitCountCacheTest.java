@@ -0,0 +1,146 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountCache;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class VisitCountCacheTest {
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("visitCountCacheTest");
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO.visitCountCache = new VisitCountCache();
+    }
+
+    private void saveTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        ticketDAO.saveTicket(ticket);
+    }
+
+    /**
+     * Test case for counting the tickets of a plate.
+     * This test checks that the count is read once from the database and then kept up to date by saveTicket.
+     */
+    @Test
+    void countIsCachedAndIncrementedOnSave() throws Exception {
+        // Two tickets before the first count
+        saveTicket("ABCDEF");
+        saveTicket("ABCDEF");
+        saveTicket("GHIJKL");
+        assertEquals(2, ticketDAO.getTicketCount("ABCDEF"));
+        assertFalse(ticketDAO.getNbTicket("ABCDEF"));
+
+        // A third ticket for the plate, then remove every ticket behind the DAO's back
+        saveTicket("ABCDEF");
+        Connection con = dataBaseTestConfig.getConnection();
+        con.createStatement().execute("delete from ticket");
+        dataBaseTestConfig.closeConnection(con);
+
+        // Assertions to check that the cached count was incremented and is served without a query
+        assertEquals(3, ticketDAO.getTicketCount("ABCDEF"));
+        assertTrue(ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(0, ticketDAO.getTicketCount("GHIJKL"));
+    }
+
+    /**
+     * Test case for a ticket saved in a unit of work that is rolled back.
+     * This test checks that the cached count is only incremented for committed tickets.
+     */
+    @Test
+    void rolledBackTicketIsNotCounted() {
+        saveTicket("ABCDEF");
+        assertEquals(1, ticketDAO.getTicketCount("ABCDEF"));
+
+        // Save a ticket without committing
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            saveTicket("ABCDEF");
+        }
+
+        // Assertion to check that the count did not change
+        assertEquals(1, ticketDAO.getTicketCount("ABCDEF"));
+    }
+
+    /**
+     * Test case for a full cache.
+     * This test checks that plates beyond the cache size are still counted, from the database.
+     */
+    @Test
+    void fullCacheFallsBackToQuery() {
+        ticketDAO.visitCountCache = new VisitCountCache(1);
+        saveTicket("ABCDEF");
+        saveTicket("GHIJKL");
+
+        // Fill the cache with the first plate
+        assertEquals(1, ticketDAO.getTicketCount("ABCDEF"));
+        assertEquals(1, ticketDAO.getTicketCount("GHIJKL"));
+        saveTicket("GHIJKL");
+
+        // Assertions to check that the second plate was not cached and is counted from the database
+        assertEquals(1, ticketDAO.visitCountCache.size());
+        assertEquals(-1, ticketDAO.visitCountCache.get("GHIJKL"));
+        assertEquals(2, ticketDAO.getTicketCount("GHIJKL"));
+    }
+
+    /**
+     * Test case for a count read from the database while another gate saves a ticket of the same plate.
+     * This test checks that the count is not cached, as the save's increment found no entry to update.
+     */
+    @Test
+    void countReadDuringSaveIsNotCached() {
+        VisitCountCache cache = ticketDAO.visitCountCache;
+        saveTicket("ABCDEF");
+
+        // A count of 1 is read, then a second ticket commits before the count is cached
+        long saveStamp = cache.getSaveStamp("ABCDEF");
+        saveTicket("ABCDEF");
+        cache.put("ABCDEF", 1, saveStamp);
+
+        // Assertions to check that the stale count was dropped and the next count is read again
+        assertEquals(-1, cache.get("ABCDEF"));
+        assertEquals(2, ticketDAO.getTicketCount("ABCDEF"));
+        assertEquals(2, cache.get("ABCDEF"));
+    }
+
+    /**
+     * Test case for a count read from the database after a save committed but before the save was counted.
+     * This test checks that the count, which already includes the ticket, is not cached and counted a second time.
+     */
+    @Test
+    void countReadBeforeSaveEndsIsNotCached() {
+        VisitCountCache cache = ticketDAO.visitCountCache;
+        saveTicket("ABCDEF");
+        assertEquals(1, ticketDAO.getTicketCount("ABCDEF"));
+        cache.invalidate("ABCDEF");
+
+        // A second ticket is committed, and a count of 2 is read before the save ends
+        cache.beginSave("ABCDEF");
+        long saveStamp = cache.getSaveStamp("ABCDEF");
+        cache.put("ABCDEF", 2, saveStamp);
+        cache.endSave("ABCDEF", true);
+
+        // Assertions to check that the count was left out rather than counted twice
+        assertEquals(-1, cache.get("ABCDEF"));
+        cache.put("ABCDEF", 2, cache.getSaveStamp("ABCDEF"));
+        assertEquals(2, cache.get("ABCDEF"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query plan regression checks on an embedded database seeded with a million tickets.
+ * Run in the integration-test phase since seeding takes a while.
+ */
+public class QueryPlanIT {
+
+    private static final int SEEDED_TICKETS = 1000000;
+
+    private static EmbeddedDataBaseTestConfig dataBaseTestConfig = new EmbeddedDataBaseTestConfig("queryPlanIT");
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        dataBaseTestConfig.prepareDataBase();
+
+        // A million tickets over 50000 plates, 20 visits each, the last visit of each plate still open
+        Connection con = dataBaseTestConfig.getConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) "
+                    + "select mod(X, 5) + 1, concat('P', (X - 1) / 20), 1.5, "
+                    + "dateadd('MINUTE', -X, current_timestamp), "
+                    + "case when mod(X, 20) = 0 then null else dateadd('MINUTE', 60 - X, current_timestamp) end "
+                    + "from system_range(1, " + SEEDED_TICKETS + ")");
+            statement.execute("analyze");
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    private String explain(String sql, Object... parameters) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement("explain " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Test case for the plan of the ticket lookup queries.
+     * This test checks that finding a plate's tickets goes through the plate index rather than a table scan.
+     */
+    @Test
+    public void ticketQueriesUsePlateIndex() throws Exception {
+        assertEquals(SchemaMigrator.getLatestVersion(), new SchemaMigrator(dataBaseTestConfig).getCurrentVersion());
+
+        // Assertions to check the index used by the ticket lookup and the loyalty count
+        assertTrue(explain(DBConstants.GET_TICKET, "P42").contains("TICKET_VEHICLE_OUT_IN_IDX"));
+        assertTrue(explain(DBConstants.COUNT_TICKETS, "P42").contains("TICKET_VEHICLE_OUT_IN_IDX"));
+    }
+
+    /**
+     * Test case for the plan of the spot allocation queries.
+     * This test checks that finding a free spot goes through the type and availability index.
+     */
+    @Test
+    public void parkingQueriesUseTypeAvailabilityIndex() throws Exception {
+        // Assertions to check the index used by the spot lookup and the claim candidates query
+        assertTrue(explain(DBConstants.GET_NEXT_PARKING_SPOT, "CAR").contains("PARKING_TYPE_AVAILABLE_IDX"));
+        assertTrue(explain(DBConstants.GET_AVAILABLE_PARKING_SPOTS_AFTER, "CAR", 0, 8).contains("PARKING_TYPE_AVAILABLE_IDX"));
+    }
+}
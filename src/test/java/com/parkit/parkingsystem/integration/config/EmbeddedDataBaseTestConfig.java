@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Points the application at an in-process H2 database running in MySQL compatibility mode.
+ * Each name gets its own database, which lives as long as the JVM.
+ */
+public class EmbeddedDataBaseTestConfig extends DataBaseConfig {
+
+    private final String name;
+
+    public EmbeddedDataBaseTestConfig(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Migrates the schema if needed, then resets the tables to the five default spots and no tickets.
+     */
+    public void prepareDataBase() throws SQLException {
+        new SchemaMigrator(this).migrate();
+        try (Connection con = createConnection(); Statement statement = con.createStatement()) {
+            statement.execute("delete from write_behind_checkpoint");
+            statement.execute("delete from active_ticket");
+            statement.execute("delete from ticket");
+            statement.execute("delete from parking");
+            statement.execute("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR'),(2,true,'CAR'),(3,true,'CAR'),(4,true,'BIKE'),(5,true,'BIKE')");
+        }
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected String getUrl() {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+}
@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.integration.service;
 
+import com.parkit.parkingsystem.config.SchemaMigrator;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
@@ -11,12 +12,14 @@ public class DataBasePrepareService {
     public void clearDataBaseEntries(){
         Connection connection = null;
         try{
+            new SchemaMigrator(dataBaseTestConfig).migrate();
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
             connection.prepareStatement("update parking set available = true").execute();
 
             //clear ticket entries;
+            connection.prepareStatement("truncate table active_ticket").execute();
             connection.prepareStatement("truncate table ticket").execute();
 
         }catch(Exception e){